@@ -17,22 +17,59 @@
  */
 package nl.kevinvandervlist.rewrite;
 
+import lombok.EqualsAndHashCode;
 import org.jetbrains.annotations.NotNull;
 import org.openrewrite.*;
 import org.openrewrite.internal.StringUtils;
 import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.java.ChangeFieldName;
 import org.openrewrite.java.JavaIsoVisitor;
-import org.openrewrite.java.JavaTemplate;
 import org.openrewrite.java.JavaVisitor;
-import org.openrewrite.java.search.UsesType;
 import org.openrewrite.java.tree.Flag;
 import org.openrewrite.java.tree.J;
 import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.marker.SearchResult;
 
+import java.beans.ConstructorProperties;
 import java.util.*;
 
+@EqualsAndHashCode(callSuper = true)
 public class AvoidDuplicateLiterals extends Recipe {
+    private static final int DEFAULT_MINIMUM_OCCURRENCES = 2;
+    private static final int DEFAULT_MINIMUM_LENGTH = 1;
+
+    @Option(displayName = "Minimum occurrences",
+            description = "Number of times a literal must occur in a class to be replaced by a constant. Defaults to 2.",
+            example = "4",
+            required = false)
+    @Nullable
+    private final Integer minimumOccurrences;
+
+    @Option(displayName = "Minimum length",
+            description = "Minimum length of a literal to be replaced by a constant. Defaults to 1.",
+            example = "3",
+            required = false)
+    @Nullable
+    private final Integer minimumLength;
+
+    public AvoidDuplicateLiterals() {
+        this(null, null);
+    }
+
+    @ConstructorProperties({"minimumOccurrences", "minimumLength"})
+    public AvoidDuplicateLiterals(@Nullable Integer minimumOccurrences, @Nullable Integer minimumLength) {
+        this.minimumOccurrences = minimumOccurrences;
+        this.minimumLength = minimumLength;
+    }
+
+    private int minimumOccurrences() {
+        return minimumOccurrences == null ? DEFAULT_MINIMUM_OCCURRENCES : Math.max(2, minimumOccurrences);
+    }
+
+    private int minimumLength() {
+        return minimumLength == null ? DEFAULT_MINIMUM_LENGTH : minimumLength;
+    }
+
     @Override
     public String getDisplayName() {
         return "Avoid duplicate literals in a class.";
@@ -46,13 +83,29 @@ public class AvoidDuplicateLiterals extends Recipe {
     @Nullable
     @Override
     protected TreeVisitor<?, ExecutionContext> getSingleSourceApplicableTest() {
-        return new UsesType<>("java.lang.String");
+        return new HasDuplicateLiterals(getName(), minimumOccurrences(), minimumLength());
     }
 
     @Override
     protected JavaVisitor<ExecutionContext> getVisitor() {
         return new JavaVisitor<ExecutionContext>() {
 
+            private Map<UUID, ClassAnalysis> scopeIndex = Collections.emptyMap();
+            private final Deque<ClassAnalysis> classes = new ArrayDeque<>();
+
+            @Override
+            public J visitCompilationUnit(J.CompilationUnit cu, ExecutionContext executionContext) {
+                RecipePhaseEvent analysis = RecipePhaseEvent.begin(AvoidDuplicateLiterals.this.getName(), RecipePhaseEvent.Phase.ANALYSIS);
+                AnalyzeClasses analyzer = new AnalyzeClasses();
+                scopeIndex = analyzer.analyze(cu);
+                analysis.end(cu, analyzer.nodes);
+                try {
+                    return super.visitCompilationUnit(cu, executionContext);
+                } finally {
+                    scopeIndex = Collections.emptyMap();
+                }
+            }
+
             @Override
             public J visitClassDeclaration(J.ClassDeclaration classDecl, ExecutionContext executionContext) {
                 assert(classDecl.getType() != null);
@@ -61,246 +114,383 @@ public class AvoidDuplicateLiterals extends Recipe {
                 //     return classDecl;
                 // }
 
-                Map<String, Set<J.Literal>> duplicateLiteralsMap = FindDuplicateStringLiterals.find(classDecl);
-                if (duplicateLiteralsMap.isEmpty()) {
-                    return classDecl;
+                ClassAnalysis analysis = scopeIndex.get(classDecl.getId());
+                if (analysis == null) {
+                    return super.visitClassDeclaration(classDecl, executionContext);
                 }
 
-                Set<String> variableNames = FindVariableNames.find(classDecl);
-                Map<String, String> fieldValueToFieldName = FindExistingPrivateStaticFinalFields.find(classDecl);
+                Map<String, String> fieldValueToFieldName = analysis.fieldValueToFieldName;
 
                 String classFqn = classDecl.getType().getFullyQualifiedName();
-                for (String valueOfLiteral : duplicateLiteralsMap.keySet()) {
+                ConstantDeclarations newConstants = new ConstantDeclarations("String", "#{any(String)}");
+                for (Map.Entry<String, Object> occurrence : analysis.literals.entrySet()) {
+                    if (!(occurrence.getValue() instanceof DuplicateLiteral)) {
+                        continue;
+                    }
+                    String valueOfLiteral = occurrence.getKey();
+                    DuplicateLiteral duplicate = (DuplicateLiteral) occurrence.getValue();
+                    if (duplicate.size < minimumOccurrences() || valueOfLiteral.length() < minimumLength()) {
+                        continue;
+                    }
                     String variableName;
-                    if (fieldValueToFieldName.containsKey(valueOfLiteral)) {
-                        String classFieldName = fieldValueToFieldName.get(valueOfLiteral);
-                        variableName = getNameWithoutShadow(classFieldName, variableNames);
-                        if (StringUtils.isBlank(variableName)) {
+                    String classFieldName = fieldValueToFieldName.get(valueOfLiteral);
+                    if (classFieldName != null) {
+                        String constantName = ConstantNames.toConstantName(classFieldName);
+                        if (StringUtils.isBlank(constantName)) {
                             continue;
                         }
+                        variableName = analysis.names.unique(constantName);
                         if (!classFieldName.equals(variableName)) {
-                            doAfterVisit(new ChangeFieldName<>(classFqn, classFieldName, variableName));
+                            doAfterVisit(RecipePhaseEvent.profile(AvoidDuplicateLiterals.this.getName(), RecipePhaseEvent.Phase.AFTER_VISIT,
+                                    new ChangeFieldName<>(classFqn, classFieldName, variableName)));
                         }
                     } else {
-                        variableName = getNameWithoutShadow(transformToVariableName(valueOfLiteral), variableNames);
-                        if (StringUtils.isBlank(variableName)) {
+                        String constantName = ConstantNames.toConstantName(valueOfLiteral);
+                        if (StringUtils.isBlank(constantName)) {
                             continue;
                         }
-                        J.Literal replaceLiteral = ((J.Literal) duplicateLiteralsMap.get(valueOfLiteral).toArray()[0]).withId(Tree.randomId());
-                        String insertStatement = "private static final String " + variableName + " = #{any(String)}";
-                        classDecl = classDecl.withBody(
-                                classDecl.getBody().withTemplate(
-                                        JavaTemplate.builder(this::getCursor, insertStatement).build(),
-                                        classDecl.getBody().getCoordinates().firstStatement(), replaceLiteral));
+                        variableName = analysis.names.unique(constantName);
+                        newConstants.add(variableName, duplicate.representative.withId(Tree.randomId()));
+                    }
+                    analysis.variableNames.add(variableName);
+                    for (int i = 0; i < duplicate.size; i++) {
+                        analysis.replacements.put(duplicate.ids[i], variableName);
                     }
-                    variableNames.add(variableName);
-                    doAfterVisit(new ReplaceStringLiterals(classDecl, variableName, duplicateLiteralsMap.get(valueOfLiteral)));
                 }
-                return classDecl;
-            }
 
-            /**
-             * Generate a variable name that does not create a name space conflict.
-             * @param name variable name to replace duplicate literals with.
-             * @param variableNames variable names that exist in the compilation unit.
-             * @return unique variable name.
-             */
-            private String getNameWithoutShadow(String name, Set<String> variableNames) {
-                String transformedName = transformToVariableName(name);
-                String newName = transformedName;
-                int append = 0;
-                while (variableNames.contains(newName)) {
-                    append++;
-                    newName = transformedName + "_" + append;
+                // Nested classes are visited as part of this call and are resolved from the same scope index.
+                classes.push(analysis);
+                J.ClassDeclaration c;
+                try {
+                    c = (J.ClassDeclaration) super.visitClassDeclaration(classDecl, executionContext);
+                } finally {
+                    classes.pop();
                 }
-                return newName;
+
+                if (!newConstants.isEmpty()) {
+                    c = newConstants.declareIn(c, AvoidDuplicateLiterals.this.getName(), getCursor());
+                }
+                return c;
             }
 
-            /**
-             * Convert a `String` value to a variable name with naming convention of all caps delimited by `_`.
-             * Special characters are filtered out to meet regex convention: ^[A-Z][A-Z0-9]*(_[A-Z0-9]+)*$
-             */
-            private String transformToVariableName(String valueOfLiteral) {
-                boolean prevIsLower = false;
-                boolean prevIsCharacter = false;
-                StringBuilder newName = new StringBuilder();
-                for (int i = 0; i < valueOfLiteral.length(); i++) {
-                    char c = valueOfLiteral.charAt(i);
-                    if (i > 0 && newName.lastIndexOf("_") != newName.length() - 1 &&
-                            (Character.isUpperCase(c) && prevIsLower || !prevIsCharacter)) {
-                        newName.append("_");
-                    }
-                    prevIsCharacter = Character.isLetterOrDigit(c);
-                    if (!prevIsCharacter) {
-                        continue;
-                    }
-                    if (newName.length() == 0 && Character.isDigit(c)) {
-                        newName.append("A_");
+            @Override
+            public J visitLiteral(J.Literal literal, ExecutionContext executionContext) {
+                ClassAnalysis analysis = classes.peek();
+                if (analysis != null) {
+                    String variableName = analysis.replacements.get(literal.getId());
+                    if (variableName != null) {
+                        return asIdentifier(literal, variableName, analysis.type);
                     }
-                    newName.append(Character.toUpperCase(c));
-                    prevIsLower = Character.isLowerCase(c);
                 }
-                return newName.toString();
+                return super.visitLiteral(literal, executionContext);
             }
         };
     }
 
-    private static class FindDuplicateStringLiterals extends JavaIsoVisitor<Map<String, Set<J.Literal>>> {
+    /**
+     * Cheap test whether a compilation unit has any `String` literal value that occurs often enough, regardless of
+     * where the literals are used. The traversal stops as soon as such a value is found.
+     */
+    private static class HasDuplicateLiterals extends JavaIsoVisitor<ExecutionContext> {
+        private final String recipe;
+        private final int minimumOccurrences;
+        private final int minimumLength;
+        private final Map<String, int[]> histogram = new HashMap<>();
+        private boolean found = false;
+        private int literals = 0;
+
+        private HasDuplicateLiterals(String recipe, int minimumOccurrences, int minimumLength) {
+            this.recipe = recipe;
+            this.minimumOccurrences = minimumOccurrences;
+            this.minimumLength = minimumLength;
+        }
 
-        /**
-         * Find duplicate `String` literals repeated 2 or more times.
-         *
-         * @param inClass subtree to search in.
-         * @return `Map` of `String` literal values to the `J.Literal` AST elements.
-         */
-        public static Map<String, Set<J.Literal>> find(J.ClassDeclaration inClass) {
-            Map<String, Set<J.Literal>> literalsMap = new HashMap<>();
-            new FindDuplicateStringLiterals().visit(inClass, literalsMap);
-            literalsMap.entrySet().removeIf(entry -> entry.getValue().size() == 1);
-            return literalsMap;
+        @Override
+        public J visit(@Nullable Tree tree, ExecutionContext executionContext) {
+            if (tree instanceof J.CompilationUnit) {
+                histogram.clear();
+                found = false;
+                literals = 0;
+            } else if (found) {
+                return (J) tree;
+            }
+            return super.visit(tree, executionContext);
         }
 
-        private static boolean isStringLiteral(J.Literal literal) {
-            return JavaType.Primitive.String.equals(literal.getType()) && literal.getValue() instanceof String;
+        @Override
+        public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu, ExecutionContext executionContext) {
+            RecipePhaseEvent applicability = RecipePhaseEvent.begin(recipe, RecipePhaseEvent.Phase.APPLICABILITY);
+            super.visitCompilationUnit(cu, executionContext);
+            applicability.end(cu, literals);
+            histogram.clear();
+            return found ? cu.withMarkers(cu.getMarkers().addIfAbsent(new SearchResult(Tree.randomId(), null))) : cu;
         }
 
-        public static boolean getParentBetterName(Object is) {
-            return is instanceof J.ClassDeclaration ||
-                is instanceof J.Annotation ||
-                is instanceof J.VariableDeclarations ||
-                is instanceof J.NewClass ||
-                is instanceof J.MethodInvocation;
+        @Override
+        public J.Literal visitLiteral(J.Literal literal, ExecutionContext executionContext) {
+            literals++;
+            if (literal.getValue() instanceof String) {
+                String value = (String) literal.getValue();
+                if (value.length() >= minimumLength && ++histogram.computeIfAbsent(value, k -> new int[1])[0] >= minimumOccurrences) {
+                    found = true;
+                }
+            }
+            return literal;
         }
+    }
 
-        public static boolean isStringLiteralUsage(Cursor parent) {
-            return parentIsVarDeclAndFinalAndNotPrivateStatic(parent) ||
-                    parent.getValue() instanceof J.NewClass ||
-                    parent.getValue() instanceof J.MethodInvocation;
+    /**
+     * Everything `AvoidDuplicateLiterals` needs to know about a single class: the occurrences of `String` literals,
+     * the variable names that are in use and the existing `private static final String` fields.
+     * Nested classes have their own analysis, which refers to the one of the enclosing class.
+     */
+    private static class ClassAnalysis extends ClassScope {
+        // A value that occurs once maps to the id of its literal, a value that occurs more often to a `DuplicateLiteral`.
+        private final Map<String, Object> literals = new LinkedHashMap<>();
+        private final Map<String, String> fieldValueToFieldName = new LinkedHashMap<>();
+        private final Map<UUID, String> replacements = new HashMap<>();
+
+        private ClassAnalysis(@Nullable ClassAnalysis enclosing, @Nullable JavaType.FullyQualified type) {
+            super(enclosing, type);
         }
 
-        private static boolean parentIsVarDeclAndFinalAndNotPrivateStatic(Cursor parent) {
-            return parent.getValue() instanceof J.VariableDeclarations &&
-                    ((J.VariableDeclarations) parent.getValue()).hasModifier(J.Modifier.Type.Final) &&
-                    !(((J.VariableDeclarations) parent.getValue()).hasModifier(J.Modifier.Type.Private) && ((J.VariableDeclarations) parent.getValue()).hasModifier(J.Modifier.Type.Static));
+        private void addLiteral(String value, J.Literal literal) {
+            Object occurrence = literals.get(value);
+            if (occurrence == null) {
+                literals.put(value, literal.getId());
+            } else if (occurrence instanceof UUID) {
+                literals.put(value, new DuplicateLiteral((UUID) occurrence, literal));
+            } else {
+                ((DuplicateLiteral) occurrence).add(literal.getId());
+            }
         }
 
         @Override
-        public J.Literal visitLiteral(J.Literal literal, Map<String, Set<J.Literal>> literalsMap) {
-            if(isStringLiteral(literal)) {
-                Cursor parent = getCursor().dropParentUntil(FindDuplicateStringLiterals::getParentBetterName);
+        boolean declares(String name) {
+            return super.declares(name) || fieldValueToFieldName.containsValue(name);
+        }
+    }
 
-                if (isStringLiteralUsage(parent)) {
-                    literalsMap.computeIfAbsent(((String) literal.getValue()), k -> new HashSet<>());
-                    literalsMap.get((String) literal.getValue()).add(literal);
-                }
+    /**
+     * The ids of all occurrences of a `String` value that occurs more than once in a class.
+     * Only one of the literals is kept, to declare the constant with.
+     */
+    private static class DuplicateLiteral {
+        private final J.Literal representative;
+        private UUID[] ids = new UUID[4];
+        private int size = 0;
+
+        private DuplicateLiteral(UUID first, J.Literal second) {
+            this.representative = second;
+            add(first);
+            add(second.getId());
+        }
+
+        private void add(UUID id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
             }
-            return literal;
+            ids[size++] = id;
         }
     }
 
-    private static boolean isPrivateStaticFinalVariable(J.VariableDeclarations declaration) {
-        return declaration.hasModifier(J.Modifier.Type.Private) &&
-                declaration.hasModifier(J.Modifier.Type.Static) &&
-                declaration.hasModifier(J.Modifier.Type.Final);
-    }
+    /**
+     * Builds the scope index of a compilation unit in a single traversal: one `ClassAnalysis` per class declaration,
+     * keyed by the id of the declaration. Literals and variables belong to the innermost enclosing class.
+     */
+    private static class AnalyzeClasses extends JavaIsoVisitor<Map<UUID, ClassAnalysis>> {
+        /**
+         * The nearest enclosing element that decides whether a `String` literal counts as a usage.
+         */
+        private enum Usage {
+            CLASS,
+            ANNOTATION,
+            VARIABLE,
+            FINAL_NOT_PRIVATE_STATIC_VARIABLE,
+            NEW_CLASS,
+            METHOD_INVOCATION;
+
+            boolean isStringLiteralUsage() {
+                return this == FINAL_NOT_PRIVATE_STATIC_VARIABLE || this == NEW_CLASS || this == METHOD_INVOCATION;
+            }
+        }
+
+        // Maintained on enter and exit, so the enclosing context of a literal or variable is known without walking the cursor.
+        private final Deque<Usage> usages = new ArrayDeque<>();
+        private final Deque<Boolean> inMethodScope = new ArrayDeque<>();
+        private final Deque<J.VariableDeclarations> declarations = new ArrayDeque<>();
+        private final Deque<ClassAnalysis> classes = new ArrayDeque<>();
+
+        // Variables declared inside the initializer of another variable are not taken into account for naming.
+        private int variableDepth = 0;
 
-    private static class FindVariableNames extends JavaIsoVisitor<Set<String>> {
+        // Number of literals and variables visited.
+        private int nodes = 0;
 
         /**
-         * Find all the variable names that exist in the provided subtree.
+         * Analyze all classes of the provided compilation unit.
          *
-         * @param inClass subtree to search in.
-         * @return variable names that exist in the subtree.
+         * @param cu compilation unit to search in.
+         * @return the analysis of every class declaration, by the id of the declaration.
          */
-        public static Set<String> find(J.ClassDeclaration inClass) {
-            Set<String> variableNames = new HashSet<>();
-            new FindVariableNames().visit(inClass, variableNames);
-            return variableNames;
+        public Map<UUID, ClassAnalysis> analyze(J.CompilationUnit cu) {
+            Map<UUID, ClassAnalysis> scopeIndex = new HashMap<>();
+            visit(cu, scopeIndex);
+            return scopeIndex;
+        }
+
+        private static boolean isStringLiteral(J.Literal literal) {
+            return JavaType.Primitive.String.equals(literal.getType()) && literal.getValue() instanceof String;
+        }
+
+        private static boolean hasStringLiteralInitializer(J.VariableDeclarations.NamedVariable variable) {
+            return variable.getInitializer() instanceof J.Literal &&
+                    ((J.Literal) variable.getInitializer()).getValue() instanceof String;
+        }
+
+        private static Usage usageOf(J.VariableDeclarations multiVariable) {
+            boolean isFinal = multiVariable.hasModifier(J.Modifier.Type.Final);
+            boolean isPrivateStatic = multiVariable.hasModifier(J.Modifier.Type.Private) && multiVariable.hasModifier(J.Modifier.Type.Static);
+            return isFinal && !isPrivateStatic ? Usage.FINAL_NOT_PRIVATE_STATIC_VARIABLE : Usage.VARIABLE;
         }
 
         @Override
-        public J.VariableDeclarations.NamedVariable visitVariable(J.VariableDeclarations.NamedVariable variable, Set<String> variableNames) {
-            Cursor parentScope = getCursor().dropParentUntil(is -> is instanceof J.ClassDeclaration || is instanceof J.MethodDeclaration);
-            J.VariableDeclarations declaration = getCursor().firstEnclosing(J.VariableDeclarations.class);
-            if (parentScope.getValue() instanceof J.MethodDeclaration ||
-                    (parentScope.getValue() instanceof J.ClassDeclaration && declaration != null &&
-                            // `private static final String`(s) are handled separately by `FindExistingPrivateStaticFinalFields`.
-                            !(isPrivateStaticFinalVariable(declaration) && variable.getInitializer() instanceof J.Literal &&
-                                    ((J.Literal) variable.getInitializer()).getValue() instanceof String))) {
-                variableNames.add(variable.getSimpleName());
+        public J.ClassDeclaration visitClassDeclaration(J.ClassDeclaration classDecl, Map<UUID, ClassAnalysis> scopeIndex) {
+            ClassAnalysis analysis = new ClassAnalysis(classes.peek(), classDecl.getType());
+            scopeIndex.put(classDecl.getId(), analysis);
+            classes.push(analysis);
+            usages.push(Usage.CLASS);
+            inMethodScope.push(false);
+            int enclosingVariableDepth = variableDepth;
+            variableDepth = 0;
+            try {
+                return super.visitClassDeclaration(classDecl, scopeIndex);
+            } finally {
+                variableDepth = enclosingVariableDepth;
+                inMethodScope.pop();
+                usages.pop();
+                classes.pop();
             }
-            return variable;
         }
-    }
 
-    private static class FindExistingPrivateStaticFinalFields extends JavaIsoVisitor<Map<String, String>> {
+        @Override
+        public J.MethodDeclaration visitMethodDeclaration(J.MethodDeclaration method, Map<UUID, ClassAnalysis> scopeIndex) {
+            inMethodScope.push(true);
+            try {
+                return super.visitMethodDeclaration(method, scopeIndex);
+            } finally {
+                inMethodScope.pop();
+            }
+        }
 
-        /**
-         * Find existing `private static final String`(s) in a class.
-         */
-        public static Map<String, String> find(J j) {
-            Map<String, String> fieldValueToFieldName = new LinkedHashMap<>();
-            new FindExistingPrivateStaticFinalFields().visit(j, fieldValueToFieldName);
-            return fieldValueToFieldName;
+        @Override
+        public J.Annotation visitAnnotation(J.Annotation annotation, Map<UUID, ClassAnalysis> scopeIndex) {
+            usages.push(Usage.ANNOTATION);
+            try {
+                return super.visitAnnotation(annotation, scopeIndex);
+            } finally {
+                usages.pop();
+            }
         }
 
         @Override
-        public J.VariableDeclarations.NamedVariable visitVariable(J.VariableDeclarations.NamedVariable variable, Map<String, String> stringStringMap) {
-            Cursor parentScope = getCursor().dropParentUntil(is -> is instanceof J.ClassDeclaration ||
-                    // Prevent checks on most of the literals.
-                    is instanceof J.MethodDeclaration);
-            J.VariableDeclarations declaration = getCursor().firstEnclosing(J.VariableDeclarations.class);
-            if (parentScope.getValue() instanceof J.ClassDeclaration &&
-                    declaration != null && isPrivateStaticFinalVariable(declaration) &&
-                    variable.getInitializer() instanceof J.Literal &&
-                    ((J.Literal) variable.getInitializer()).getValue() instanceof String) {
-                String value = (String) (((J.Literal) variable.getInitializer()).getValue());
-                stringStringMap.putIfAbsent(value, variable.getSimpleName());
+        public J.VariableDeclarations visitVariableDeclarations(J.VariableDeclarations multiVariable, Map<UUID, ClassAnalysis> scopeIndex) {
+            usages.push(usageOf(multiVariable));
+            declarations.push(multiVariable);
+            try {
+                return super.visitVariableDeclarations(multiVariable, scopeIndex);
+            } finally {
+                declarations.pop();
+                usages.pop();
             }
-            return variable;
         }
-    }
 
-    /**
-     * ReplaceStringLiterals in a class with a reference to a `private static final String` with the provided variable name.
-     */
-    private static class ReplaceStringLiterals extends JavaVisitor<ExecutionContext> {
-        private final J.ClassDeclaration isClass;
-        private final String variableName;
-        private final Set<J.Literal> literals;
-
-        private ReplaceStringLiterals(J.ClassDeclaration isClass, String variableName, Set<J.Literal> literals) {
-            this.isClass = isClass;
-            this.variableName = variableName;
-            this.literals = literals;
+        @Override
+        public J.NewClass visitNewClass(J.NewClass newClass, Map<UUID, ClassAnalysis> scopeIndex) {
+            usages.push(Usage.NEW_CLASS);
+            try {
+                return super.visitNewClass(newClass, scopeIndex);
+            } finally {
+                usages.pop();
+            }
         }
 
         @Override
-        public J visitLiteral(J.Literal literal, ExecutionContext executionContext) {
-            if (literals.contains(literal)) {
-                assert isClass.getType() != null;
-                return asIdentifier(literal);
+        public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method, Map<UUID, ClassAnalysis> scopeIndex) {
+            usages.push(Usage.METHOD_INVOCATION);
+            try {
+                return super.visitMethodInvocation(method, scopeIndex);
+            } finally {
+                usages.pop();
             }
+        }
 
+        @Override
+        public J.Literal visitLiteral(J.Literal literal, Map<UUID, ClassAnalysis> scopeIndex) {
+            nodes++;
+            ClassAnalysis analysis = classes.peek();
+            if (analysis != null && isStringLiteral(literal) && !usages.isEmpty() && usages.peek().isStringLiteralUsage()) {
+                analysis.addLiteral((String) literal.getValue(), literal);
+            }
             return literal;
         }
 
-        @NotNull
-        private J.Identifier asIdentifier(J.Literal literal) {
-            return new J.Identifier(
-                    Tree.randomId(),
-                    literal.getPrefix(),
-                    literal.getMarkers(),
-                    variableName,
-                    JavaType.Primitive.String,
-                    new JavaType.Variable(
-                            Flag.flagsToBitMap(new HashSet<>(Arrays.asList(Flag.Private, Flag.Static, Flag.Final))),
-                            variableName,
-                            isClass.getType(),
-                            JavaType.Primitive.String,
-                            Collections.emptyList()
-                    )
-            );
+        @Override
+        public J.VariableDeclarations.NamedVariable visitVariable(J.VariableDeclarations.NamedVariable variable, Map<UUID, ClassAnalysis> scopeIndex) {
+            nodes++;
+            if (variableDepth == 0 && !classes.isEmpty()) {
+                collectVariable(variable, classes.peek());
+            }
+            variableDepth++;
+            try {
+                return super.visitVariable(variable, scopeIndex);
+            } finally {
+                variableDepth--;
+            }
+        }
+
+        private void collectVariable(J.VariableDeclarations.NamedVariable variable, ClassAnalysis analysis) {
+            if (inMethodScope.isEmpty()) {
+                return;
+            }
+            J.VariableDeclarations declaration = declarations.peek();
+            if (inMethodScope.peek()) {
+                analysis.variableNames.add(variable.getSimpleName());
+            } else if (declaration != null) {
+                if (isPrivateStaticFinalVariable(declaration) && hasStringLiteralInitializer(variable)) {
+                    String value = (String) (((J.Literal) variable.getInitializer()).getValue());
+                    analysis.fieldValueToFieldName.putIfAbsent(value, variable.getSimpleName());
+                } else {
+                    analysis.variableNames.add(variable.getSimpleName());
+                }
+            }
         }
     }
+
+    private static boolean isPrivateStaticFinalVariable(J.VariableDeclarations declaration) {
+        return declaration.hasModifier(J.Modifier.Type.Private) &&
+                declaration.hasModifier(J.Modifier.Type.Static) &&
+                declaration.hasModifier(J.Modifier.Type.Final);
+    }
+
+    /**
+     * A reference to the `private static final String` with the provided variable name, in place of the literal.
+     */
+    @NotNull
+    private static J.Identifier asIdentifier(J.Literal literal, String variableName, @Nullable JavaType.FullyQualified owner) {
+        return new J.Identifier(
+                Tree.randomId(),
+                literal.getPrefix(),
+                literal.getMarkers(),
+                variableName,
+                JavaType.Primitive.String,
+                new JavaType.Variable(
+                        Flag.flagsToBitMap(new HashSet<>(Arrays.asList(Flag.Private, Flag.Static, Flag.Final))),
+                        variableName,
+                        owner,
+                        JavaType.Primitive.String,
+                        Collections.emptyList()
+                )
+        );
+    }
 }
@@ -0,0 +1,202 @@
+package nl.kevinvandervlist.rewrite;
+
+import org.openrewrite.Cursor;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.J;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured events about the changes recipes make: recipe name, source path, node kind and a short snippet.
+ * Recording only claims a slot in a lock-free ring buffer; a background thread writes the events as JSON lines to the
+ * file named by the `nl.kevinvandervlist.rewrite.changeEvents` system property. Without that property, recording is
+ * a no-op. When the buffer is full, events are dropped rather than slowing down the recipe.
+ */
+public final class ChangeEvents {
+    public static final String FILE_PROPERTY = "nl.kevinvandervlist.rewrite.changeEvents";
+
+    private static final int CAPACITY = 1 << 14;
+    private static final int MAX_SNIPPET_LENGTH = 120;
+
+    @Nullable
+    private static final ChangeEvents INSTANCE = create(System.getProperty(FILE_PROPERTY));
+
+    private final AtomicReferenceArray<String> slots = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long head = 0;
+    private final BufferedWriter writer;
+
+    private ChangeEvents(Path file) throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        Thread drain = new Thread(this::drainContinuously, "change-events-writer");
+        drain.setDaemon(true);
+        drain.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drainRemaining, "change-events-flush"));
+    }
+
+    @Nullable
+    private static ChangeEvents create(@Nullable String file) {
+        if (file == null || file.isEmpty()) {
+            return null;
+        }
+        try {
+            return new ChangeEvents(Paths.get(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open change events file " + file, e);
+        }
+    }
+
+    public static boolean isEnabled() {
+        return INSTANCE != null;
+    }
+
+    /**
+     * Record a change to the tree at the cursor.
+     *
+     * @param recipe  name of the recipe making the change.
+     * @param cursor  cursor pointing at or inside the changed tree, used to find the source path.
+     * @param changed the changed tree.
+     */
+    public static void record(String recipe, Cursor cursor, J changed) {
+        if (INSTANCE != null) {
+            record(recipe, cursor, changed.getClass().getSimpleName(), changed.printTrimmed(cursor));
+        }
+    }
+
+    /**
+     * Record a change described by a snippet, for changes that are not well described by printing the changed tree.
+     */
+    public static void record(String recipe, Cursor cursor, String nodeKind, String snippet) {
+        if (INSTANCE != null) {
+            J.CompilationUnit cu = cursor.firstEnclosing(J.CompilationUnit.class);
+            record(recipe, cu == null ? "" : cu.getSourcePath().toString(), nodeKind, snippet);
+        }
+    }
+
+    public static void record(String recipe, String sourcePath, String nodeKind, String snippet) {
+        ChangeEvents events = INSTANCE;
+        if (events != null) {
+            events.offer(toJson(recipe, sourcePath, nodeKind, snippet));
+        }
+    }
+
+    /**
+     * Number of events dropped because the buffer was full.
+     */
+    public static long dropped() {
+        ChangeEvents events = INSTANCE;
+        return events == null ? 0 : events.dropped.get();
+    }
+
+    private void offer(String event) {
+        long t = tail.get();
+        while (true) {
+            if (t - head >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.lazySet((int) (t & (CAPACITY - 1)), event);
+                return;
+            }
+            t = tail.get();
+        }
+    }
+
+    private void drainContinuously() {
+        while (true) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+    }
+
+    private synchronized void drainRemaining() {
+        // Events whose slot was claimed but not yet published are given a moment to arrive.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        while (head < tail.get() && System.nanoTime() < deadline) {
+            if (drain() == 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Write all published events. Only one thread drains at a time.
+     *
+     * @return the number of events written.
+     */
+    private synchronized int drain() {
+        int written = 0;
+        try {
+            while (head < tail.get()) {
+                int slot = (int) (head & (CAPACITY - 1));
+                String event = slots.get(slot);
+                if (event == null) {
+                    // Claimed by a producer, but not published yet.
+                    break;
+                }
+                slots.lazySet(slot, null);
+                writer.write(event);
+                writer.newLine();
+                head++;
+                written++;
+            }
+            if (written > 0) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return written;
+    }
+
+    private static String toJson(String recipe, String sourcePath, String nodeKind, String snippet) {
+        if (snippet.length() > MAX_SNIPPET_LENGTH) {
+            snippet = snippet.substring(0, MAX_SNIPPET_LENGTH) + "...";
+        }
+        StringBuilder json = new StringBuilder(64 + recipe.length() + sourcePath.length() + snippet.length());
+        json.append("{\"recipe\":");
+        appendString(json, recipe);
+        json.append(",\"sourcePath\":");
+        appendString(json, sourcePath);
+        json.append(",\"nodeKind\":");
+        appendString(json, nodeKind);
+        json.append(",\"snippet\":");
+        appendString(json, snippet);
+        return json.append('}').toString();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
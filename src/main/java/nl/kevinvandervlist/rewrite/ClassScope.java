@@ -0,0 +1,48 @@
+package nl.kevinvandervlist.rewrite;
+
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.JavaType;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The variable names in use in a class, to name the `private static final` constants a recipe adds to it without
+ * conflicts. Nested classes have their own scope, which refers to the one of the enclosing class.
+ */
+class ClassScope {
+    @Nullable
+    final ClassScope enclosing;
+    @Nullable
+    final JavaType.FullyQualified type;
+    final Set<String> variableNames = new HashSet<>();
+    final ConstantNames names = new ConstantNames(this::isNameTaken);
+
+    ClassScope(@Nullable ClassScope enclosing, @Nullable JavaType.FullyQualified type) {
+        this.enclosing = enclosing;
+        this.type = type;
+    }
+
+    /**
+     * A name is taken when it is used in this class, or anywhere in an enclosing class:
+     * declaring it here would shadow the declaration of the enclosing class.
+     */
+    boolean isNameTaken(String name) {
+        if (variableNames.contains(name)) {
+            return true;
+        }
+        for (ClassScope outer = enclosing; outer != null; outer = outer.enclosing) {
+            if (outer.declares(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the name is declared anywhere in this class, as seen from the classes nested in it.
+     */
+    boolean declares(String name) {
+        return variableNames.contains(name);
+    }
+}
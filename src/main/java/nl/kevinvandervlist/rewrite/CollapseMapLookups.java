@@ -0,0 +1,591 @@
+package nl.kevinvandervlist.rewrite;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Tree;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaIsoVisitor;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.tree.*;
+import org.openrewrite.marker.Markers;
+
+import java.util.*;
+
+/**
+ * Look up a key in a map once, instead of checking for it and getting or putting it separately:
+ * <ul>
+ * <li>`m.containsKey(k) ? m.get(k) : d` becomes `m.getOrDefault(k, d)`.</li>
+ * <li>`if (m.containsKey(k)) { V v = m.get(k); ... }` becomes `V v = m.get(k); if (v != null) { ... }`.</li>
+ * <li>`if (!m.containsKey(k)) { m.put(k, new V()); } m.get(k).add(x);` becomes
+ * `m.computeIfAbsent(k, key -> new V()).add(x);`.</li>
+ * <li>`m.put(k, m.getOrDefault(k, 0) + d)`, or `m.put(k, m.get(k) + d)` when present and `m.put(k, d)` when absent,
+ * becomes `m.merge(k, d, Integer::sum)`, or `Long::sum` or `Double::sum`, with an `int` literal `d` widened to match.</li>
+ * <li>A loop over `m.keySet()` that calls `m.get(key)` iterates over `m.entrySet()` instead.</li>
+ * </ul>
+ * Maps may hold `null` values, for which `get` can not tell a missing key from a present one. Unless the map is known
+ * to reject `null`, like `ConcurrentHashMap` and `Hashtable` do, a `null` value is still checked with `containsKey`,
+ * which only costs a second lookup for keys that are missing or mapped to `null`. `computeIfAbsent` and `merge` treat a
+ * `null` value as missing, where the original code would have thrown a `NullPointerException`. A standalone
+ * check-then-put only becomes `putIfAbsent` or `computeIfAbsent` for maps that reject `null`.
+ * <p>
+ * Only maps and keys that are variables, fields or literals are rewritten, so they are evaluated the same number of
+ * times, and the lambdas of `computeIfAbsent` only create values from literals, so they capture no variables.
+ */
+public class CollapseMapLookups extends Recipe {
+    private static final String MAP = "java.util.Map";
+
+    private static final Set<String> NON_NULL_MAPS = new HashSet<>(Arrays.asList("java.util.Hashtable",
+            "java.util.concurrent.ConcurrentHashMap", "java.util.concurrent.ConcurrentMap",
+            "java.util.concurrent.ConcurrentSkipListMap", "java.util.concurrent.ConcurrentNavigableMap"));
+
+    private static final Map<String, String> SUMS = new HashMap<>();
+
+    static {
+        SUMS.put("java.lang.Integer", "Integer::sum");
+        SUMS.put("java.lang.Long", "Long::sum");
+        SUMS.put("java.lang.Double", "Double::sum");
+    }
+
+    private static final Map<JavaType.Primitive, String> BOXES = new HashMap<>();
+
+    static {
+        BOXES.put(JavaType.Primitive.Int, "java.lang.Integer");
+        BOXES.put(JavaType.Primitive.Long, "java.lang.Long");
+        BOXES.put(JavaType.Primitive.Double, "java.lang.Double");
+    }
+
+    private static final JavaTemplateCache.Key GET_OR_DEFAULT = JavaTemplateCache.key("#{}.getOrDefault(#{}, #{})");
+    private static final JavaTemplateCache.Key NON_NULL = JavaTemplateCache.key("#{} != null");
+    private static final JavaTemplateCache.Key NON_NULL_OR_CONTAINS_KEY = JavaTemplateCache.key("#{} != null || #{}.containsKey(#{})");
+    private static final JavaTemplateCache.Key COMPUTE_IF_ABSENT = JavaTemplateCache.key("#{}.computeIfAbsent(#{}, #{} -> #{})");
+    private static final JavaTemplateCache.Key COMPUTE_IF_ABSENT_STATEMENT = JavaTemplateCache.key("#{}.computeIfAbsent(#{}, #{} -> #{});");
+    private static final JavaTemplateCache.Key PUT_IF_ABSENT = JavaTemplateCache.key("#{}.putIfAbsent(#{}, #{});");
+    private static final JavaTemplateCache.Key MERGE = JavaTemplateCache.key("#{}.merge(#{}, #{}, #{});");
+    private static final JavaTemplateCache.Key ENTRY_LOOP = JavaTemplateCache.key("for (Map.Entry<#{}, #{}> #{} : #{}.entrySet()) {#{}}", MAP);
+
+    @Override
+    public String getDisplayName() {
+        return "Collapse map double lookups";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Look up a key in a map once, instead of calling containsKey before get or put, or get for every key " +
+                "of a keySet loop.";
+    }
+
+    @Override
+    protected TreeVisitor<?, ExecutionContext> getVisitor() {
+        return RecipePhaseEvent.profile(getName(), RecipePhaseEvent.Phase.REWRITE, new JavaVisitor<ExecutionContext>() {
+            @Override
+            public J visitTernary(J.Ternary ternary, ExecutionContext executionContext) {
+                J j = super.visitTernary(ternary, executionContext);
+                if (!(j instanceof J.Ternary)) {
+                    return j;
+                }
+                J.Ternary t = (J.Ternary) j;
+                Expression condition = t.getCondition();
+                boolean negated = isNot(condition);
+                J.MethodInvocation containsKey = mapCall(negated ? ((J.Unary) condition).getExpression() : condition, "containsKey", 1);
+                J.MethodInvocation get = mapCall(negated ? t.getFalsePart() : t.getTruePart(), "get", 1);
+                Expression otherwise = negated ? t.getTruePart() : t.getFalsePart();
+                if (containsKey == null || !isSameLookup(containsKey, get) || !isCheap(otherwise)) {
+                    return t;
+                }
+                return apply(GET_OR_DEFAULT, t, t.getCoordinates().replace(),
+                        containsKey.getSelect(), containsKey.getArguments().get(0), otherwise);
+            }
+
+            @Override
+            public J visitBlock(J.Block block, ExecutionContext executionContext) {
+                J.Block b = (J.Block) super.visitBlock(block, executionContext);
+                for (int i = 0; i < b.getStatements().size(); i++) {
+                    J.Block collapsed = collapse(b, i);
+                    if (collapsed != null) {
+                        ChangeEvents.record(CollapseMapLookups.this.getName(), getCursor(), collapsed.getStatements().get(i));
+                        b = collapsed;
+                    }
+                }
+                return b;
+            }
+
+            /**
+             * The block with the lookups of the statement at the index collapsed, or `null` when they can not be.
+             */
+            @Nullable
+            private J.Block collapse(J.Block b, int index) {
+                List<Statement> statements = b.getStatements();
+                Statement statement = statements.get(index);
+                if (statement instanceof J.If) {
+                    J.If iff = (J.If) statement;
+                    Statement next = index + 1 < statements.size() ? statements.get(index + 1) : null;
+                    J.Block collapsed = computeIfAbsent(b, iff, next);
+                    if (collapsed == null) {
+                        collapsed = mergeIfPresent(b, iff);
+                    }
+                    if (collapsed == null) {
+                        collapsed = getIfPresent(b, index, iff);
+                    }
+                    return collapsed;
+                } else if (statement instanceof J.MethodInvocation) {
+                    return mergeWithDefault(b, (J.MethodInvocation) statement);
+                } else if (statement instanceof J.ForEachLoop) {
+                    return iterateEntries(b, (J.ForEachLoop) statement);
+                }
+                return null;
+            }
+
+            /**
+             * `if (!m.containsKey(k)) { m.put(k, new V()); }`, followed by `m.get(k).add(x);` for any map, or on its
+             * own for maps that reject `null`.
+             */
+            @Nullable
+            private J.Block computeIfAbsent(J.Block b, J.If iff, @Nullable Statement next) {
+                if (iff.getElsePart() != null || !isNot(iff.getIfCondition().getTree())) {
+                    return null;
+                }
+                J.MethodInvocation containsKey = mapCall(((J.Unary) iff.getIfCondition().getTree()).getExpression(), "containsKey", 1);
+                J.MethodInvocation put = mapCall(single(iff.getThenPart()), "put", 2);
+                if (containsKey == null || !isSameLookup(containsKey, put)) {
+                    return null;
+                }
+                Expression value = put.getArguments().get(1);
+                J.MethodInvocation get = next instanceof J.MethodInvocation ? mapCall(((J.MethodInvocation) next).getSelect(), "get", 1) : null;
+                List<Statement> statements = new ArrayList<>(b.getStatements());
+                if (isSameLookup(containsKey, get) && isNewFromLiterals(value)) {
+                    String key = unusedName("key");
+                    if (key == null) {
+                        return null;
+                    }
+                    statements.remove(iff);
+                    return apply(COMPUTE_IF_ABSENT, b.withStatements(statements), get.getCoordinates().replace(),
+                            containsKey.getSelect(), containsKey.getArguments().get(0), key, value);
+                }
+                if (!rejectsNull(containsKey.getSelect())) {
+                    return null;
+                }
+                if (isNewFromLiterals(value)) {
+                    String key = unusedName("key");
+                    return key == null ? null : apply(COMPUTE_IF_ABSENT_STATEMENT, b, iff.getCoordinates().replace(),
+                            containsKey.getSelect(), containsKey.getArguments().get(0), key, value);
+                }
+                return isCheap(value) ?
+                        apply(PUT_IF_ABSENT, b, iff.getCoordinates().replace(),
+                                containsKey.getSelect(), containsKey.getArguments().get(0), value) :
+                        null;
+            }
+
+            /**
+             * `if (m.containsKey(k)) { m.put(k, m.get(k) + d); } else { m.put(k, d); }`
+             */
+            @Nullable
+            private J.Block mergeIfPresent(J.Block b, J.If iff) {
+                if (iff.getElsePart() == null) {
+                    return null;
+                }
+                J.MethodInvocation containsKey = mapCall(iff.getIfCondition().getTree(), "containsKey", 1);
+                J.MethodInvocation increment = mapCall(single(iff.getThenPart()), "put", 2);
+                J.MethodInvocation initial = mapCall(single(iff.getElsePart().getBody()), "put", 2);
+                if (containsKey == null || !isSameLookup(containsKey, increment) || !isSameLookup(containsKey, initial)) {
+                    return null;
+                }
+                Expression delta = initial.getArguments().get(1);
+                Expression sum = increment.getArguments().get(1);
+                String valueType = valueType(containsKey.getSelect());
+                Object merged = mergedValue(delta, valueType);
+                if (merged == null || !isCheap(delta) || !(sum instanceof J.Binary) || ((J.Binary) sum).getOperator() != J.Binary.Type.Addition ||
+                        !isSameLookup(containsKey, mapCall(((J.Binary) sum).getLeft(), "get", 1)) ||
+                        !isSame(delta, ((J.Binary) sum).getRight())) {
+                    return null;
+                }
+                return apply(MERGE, b, iff.getCoordinates().replace(),
+                        containsKey.getSelect(), containsKey.getArguments().get(0), merged, SUMS.get(valueType));
+            }
+
+            /**
+             * `m.put(k, m.getOrDefault(k, 0) + d);`
+             */
+            @Nullable
+            private J.Block mergeWithDefault(J.Block b, J.MethodInvocation statement) {
+                J.MethodInvocation put = mapCall(statement, "put", 2);
+                if (put == null || !isCheap(put.getSelect()) || !isCheap(put.getArguments().get(0)) ||
+                        !(put.getArguments().get(1) instanceof J.Binary)) {
+                    return null;
+                }
+                J.Binary sum = (J.Binary) put.getArguments().get(1);
+                J.MethodInvocation getOrDefault = mapCall(sum.getLeft(), "getOrDefault", 2);
+                String valueType = valueType(put.getSelect());
+                Object merged = mergedValue(sum.getRight(), valueType);
+                if (merged == null || sum.getOperator() != J.Binary.Type.Addition || !isCheap(sum.getRight()) ||
+                        !isSameLookup(put, getOrDefault) || !isZero(getOrDefault.getArguments().get(1))) {
+                    return null;
+                }
+                return apply(MERGE, b, statement.getCoordinates().replace(),
+                        put.getSelect(), put.getArguments().get(0), merged, SUMS.get(valueType));
+            }
+
+            /**
+             * `if (m.containsKey(k)) { V v = m.get(k); ... }`
+             */
+            @Nullable
+            private J.Block getIfPresent(J.Block b, int index, J.If iff) {
+                J.MethodInvocation containsKey = mapCall(iff.getIfCondition().getTree(), "containsKey", 1);
+                if (containsKey == null || !(iff.getThenPart() instanceof J.Block)) {
+                    return null;
+                }
+                J.Block then = (J.Block) iff.getThenPart();
+                if (then.getStatements().isEmpty() || !(then.getStatements().get(0) instanceof J.VariableDeclarations)) {
+                    return null;
+                }
+                J.VariableDeclarations declaration = (J.VariableDeclarations) then.getStatements().get(0);
+                if (declaration.getVariables().size() != 1 || !isReference(declaration.getType()) ||
+                        !isSameLookup(containsKey, mapCall(declaration.getVariables().get(0).getInitializer(), "get", 1))) {
+                    return null;
+                }
+                // The variable moves to the enclosing block, where its name must not be declared again, nor refer to a
+                // field or variable that the moved variable would then hide.
+                String name = declaration.getVariables().get(0).getSimpleName();
+                Set<String> used = new HashSet<>();
+                for (Statement statement : b.getStatements().subList(index + 1, b.getStatements().size())) {
+                    new UsedNames().visit(statement, used);
+                }
+                if (iff.getElsePart() != null) {
+                    new UsedNames().visit(iff.getElsePart(), used);
+                }
+                if (used.contains(name)) {
+                    return null;
+                }
+
+                J.If checked = iff.withThenPart(then.withStatements(then.getStatements().subList(1, then.getStatements().size())));
+                List<Statement> statements = new ArrayList<>(b.getStatements());
+                statements.set(index, checked);
+                statements.add(index, declaration.withPrefix(iff.getPrefix()));
+                b = b.withStatements(statements);
+                Expression condition = checked.getIfCondition().getTree();
+                return rejectsNull(containsKey.getSelect()) ?
+                        apply(NON_NULL, b, condition.getCoordinates().replace(), name) :
+                        apply(NON_NULL_OR_CONTAINS_KEY, b, condition.getCoordinates().replace(),
+                                name, containsKey.getSelect(), containsKey.getArguments().get(0));
+            }
+
+            /**
+             * `for (K key : m.keySet()) { ... m.get(key) ... }`, where the loop does nothing else with the map.
+             */
+            @Nullable
+            private J.Block iterateEntries(J.Block b, J.ForEachLoop loop) {
+                J.MethodInvocation keySet = mapCall(loop.getControl().getIterable(), "keySet", 0);
+                J.VariableDeclarations variable = loop.getControl().getVariable();
+                if (keySet == null || !isCheap(keySet.getSelect()) || !(loop.getBody() instanceof J.Block) ||
+                        variable.getVariables().size() != 1 || variable.getTypeExpression() == null) {
+                    return null;
+                }
+                Expression map = keySet.getSelect();
+                String key = variable.getVariables().get(0).getSimpleName();
+                String keyType = typeSource(typeParameter(map, 0));
+                String valueType = typeSource(typeParameter(map, 1));
+                String entry = unusedName("entry");
+                if (keyType == null || valueType == null || entry == null) {
+                    return null;
+                }
+                GetValues getValues = new GetValues(map, key, entry);
+                J.Block body = (J.Block) getValues.visit(loop.getBody(), 0);
+                if (getValues.replaced == 0 || getValues.other) {
+                    return null;
+                }
+
+                String printed = body.printTrimmed();
+                String statements = printed.substring(printed.indexOf('{') + 1, printed.lastIndexOf('}'));
+                String indentation = body.getStatements().isEmpty() ? null : indentation(body.getStatements().get(0).getPrefix());
+                String keyDeclaration = "\n" + (indentation == null ? "" : indentation) +
+                        variable.getTypeExpression().printTrimmed() + " " + key + " = " + entry + ".getKey();";
+                maybeAddImport(MAP);
+                return apply(ENTRY_LOOP, b, loop.getCoordinates().replace(),
+                        keyType, valueType, entry, map, keyDeclaration + statements);
+            }
+
+            /**
+             * Source of a type argument, importing the classes it refers to, or `null` when it can not be written.
+             */
+            @Nullable
+            private String typeSource(@Nullable JavaType type) {
+                if (type instanceof JavaType.Parameterized) {
+                    JavaType.Parameterized parameterized = (JavaType.Parameterized) type;
+                    StringJoiner arguments = new StringJoiner(", ", "<", ">");
+                    for (JavaType argument : parameterized.getTypeParameters()) {
+                        String source = typeSource(argument);
+                        if (source == null) {
+                            return null;
+                        }
+                        arguments.add(source);
+                    }
+                    String raw = typeSource(parameterized.getType());
+                    return raw == null ? null : raw + arguments;
+                }
+                if (type instanceof JavaType.Class) {
+                    JavaType.Class clazz = (JavaType.Class) type;
+                    if (clazz.getClassName().contains(".")) {
+                        return null;
+                    }
+                    if (!clazz.getFullyQualifiedName().startsWith("java.lang.")) {
+                        maybeAddImport(clazz.getFullyQualifiedName());
+                    }
+                    return clazz.getClassName();
+                }
+                if (type instanceof JavaType.GenericTypeVariable && !"?".equals(((JavaType.GenericTypeVariable) type).getFullyQualifiedName())) {
+                    return ((JavaType.GenericTypeVariable) type).getFullyQualifiedName();
+                }
+                return null;
+            }
+
+            /**
+             * The name, or the name with the lowest number appended, that is not used in the enclosing method, so a
+             * lambda parameter or variable with that name shadows nothing. `null` outside of methods.
+             */
+            @Nullable
+            private String unusedName(String name) {
+                J.MethodDeclaration method = getCursor().firstEnclosing(J.MethodDeclaration.class);
+                if (method == null) {
+                    return null;
+                }
+                Set<String> used = new HashSet<>();
+                new UsedNames().visit(method, used);
+                String unused = name;
+                for (int i = 1; used.contains(unused); i++) {
+                    unused = name + i;
+                }
+                return unused;
+            }
+
+            private J.Block apply(JavaTemplateCache.Key template, J.Block b, JavaCoordinates coordinates, Object... parameters) {
+                RecipePhaseEvent event = RecipePhaseEvent.begin(CollapseMapLookups.this.getName(), RecipePhaseEvent.Phase.TEMPLATE);
+                J.Block j = JavaTemplateCache.apply(template, getCursor(), b, coordinates, parameters);
+                event.end(getCursor(), 1);
+                return j;
+            }
+
+            private J apply(JavaTemplateCache.Key template, J.Ternary t, JavaCoordinates coordinates, Object... parameters) {
+                RecipePhaseEvent event = RecipePhaseEvent.begin(CollapseMapLookups.this.getName(), RecipePhaseEvent.Phase.TEMPLATE);
+                J j = JavaTemplateCache.apply(template, getCursor(), t, coordinates, parameters);
+                event.end(getCursor(), 1);
+                ChangeEvents.record(CollapseMapLookups.this.getName(), getCursor(), j);
+                return j;
+            }
+        });
+    }
+
+    /**
+     * A call of a `Map` method with the provided name and number of arguments, or `null`.
+     */
+    @Nullable
+    private static J.MethodInvocation mapCall(@Nullable J tree, String name, int arguments) {
+        if (!(tree instanceof J.MethodInvocation)) {
+            return null;
+        }
+        J.MethodInvocation m = (J.MethodInvocation) tree;
+        if (m.getSelect() == null || !name.equals(m.getName().getSimpleName()) ||
+                arguments(m).size() != arguments || !Types.isSubtypeOf(MAP, m.getSelect().getType())) {
+            return null;
+        }
+        return m;
+    }
+
+    /**
+     * Whether both calls look up the same key in the same map.
+     */
+    private static boolean isSameLookup(J.MethodInvocation first, @Nullable J.MethodInvocation second) {
+        return second != null && isSame(first.getSelect(), second.getSelect()) &&
+                isSame(first.getArguments().get(0), second.getArguments().get(0));
+    }
+
+    private static boolean isSame(@Nullable Expression first, @Nullable Expression second) {
+        return isCheap(first) && isCheap(second) && first.printTrimmed().equals(second.printTrimmed());
+    }
+
+    /**
+     * Whether an expression has no side effects and is cheap to evaluate again: a variable, field or literal.
+     */
+    private static boolean isCheap(@Nullable Expression expression) {
+        return expression instanceof J.Identifier || expression instanceof J.Literal ||
+                expression instanceof J.FieldAccess && isCheap(((J.FieldAccess) expression).getTarget());
+    }
+
+    private static boolean isNewFromLiterals(Expression expression) {
+        if (!(expression instanceof J.NewClass) || ((J.NewClass) expression).getBody() != null) {
+            return false;
+        }
+        for (Expression argument : ((J.NewClass) expression).getArguments()) {
+            if (!(argument instanceof J.Empty || argument instanceof J.Literal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNot(Expression expression) {
+        return expression instanceof J.Unary && ((J.Unary) expression).getOperator() == J.Unary.Type.Not;
+    }
+
+    private static boolean isZero(Expression expression) {
+        return expression instanceof J.Literal && ((J.Literal) expression).getValue() instanceof Number &&
+                ((Number) ((J.Literal) expression).getValue()).doubleValue() == 0;
+    }
+
+    /**
+     * The value to merge: the value itself when its type is the value type of the map, a decimal `int` literal widened
+     * to a `long` or `double` literal, or `null` when the sum method of the value type would not accept it.
+     */
+    @Nullable
+    private static Object mergedValue(Expression value, @Nullable String valueType) {
+        if (valueType == null || !SUMS.containsKey(valueType)) {
+            return null;
+        }
+        JavaType type = value.getType();
+        String boxed = type instanceof JavaType.Primitive ? BOXES.get(type) : fullyQualifiedName(type);
+        if (valueType.equals(boxed)) {
+            return value;
+        }
+        if (type == JavaType.Primitive.Int && value instanceof J.Literal && ((J.Literal) value).getValueSource() != null &&
+                ((J.Literal) value).getValueSource().matches("[0-9]+")) {
+            String source = ((J.Literal) value).getValueSource();
+            if ("java.lang.Long".equals(valueType)) {
+                return source + "L";
+            } else if ("java.lang.Double".equals(valueType)) {
+                return source + ".0";
+            }
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String fullyQualifiedName(@Nullable JavaType type) {
+        JavaType.FullyQualified fullyQualified = TypeUtils.asFullyQualified(type);
+        return fullyQualified == null ? null : fullyQualified.getFullyQualifiedName();
+    }
+
+    private static boolean isReference(@Nullable JavaType type) {
+        return type != null && (!(type instanceof JavaType.Primitive) || type == JavaType.Primitive.String);
+    }
+
+    /**
+     * The only statement of a block, or the statement itself.
+     */
+    @Nullable
+    private static Statement single(Statement statement) {
+        if (statement instanceof J.Block) {
+            List<Statement> statements = ((J.Block) statement).getStatements();
+            return statements.size() == 1 ? statements.get(0) : null;
+        }
+        return statement;
+    }
+
+    private static boolean rejectsNull(Expression map) {
+        JavaType.FullyQualified type = TypeUtils.asFullyQualified(map.getType());
+        return type != null && NON_NULL_MAPS.contains(type.getFullyQualifiedName());
+    }
+
+    /**
+     * The key (0) or value (1) type argument of the type of a map, or `null` when it is not parameterized with both.
+     */
+    @Nullable
+    private static JavaType typeParameter(Expression map, int index) {
+        JavaType type = map.getType();
+        if (type instanceof JavaType.Parameterized && ((JavaType.Parameterized) type).getTypeParameters().size() == 2) {
+            return ((JavaType.Parameterized) type).getTypeParameters().get(index);
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String valueType(Expression map) {
+        JavaType.FullyQualified type = TypeUtils.asFullyQualified(typeParameter(map, 1));
+        return type == null ? null : type.getFullyQualifiedName();
+    }
+
+    private static List<Expression> arguments(J.MethodInvocation m) {
+        List<Expression> arguments = m.getArguments();
+        if (arguments.size() == 1 && arguments.get(0) instanceof J.Empty) {
+            return Collections.emptyList();
+        }
+        return arguments;
+    }
+
+    /**
+     * The whitespace after the last line break, or `null` when there is no line break.
+     */
+    @Nullable
+    private static String indentation(Space space) {
+        String whitespace = space.getWhitespace();
+        int lineBreak = whitespace.lastIndexOf('\n');
+        return lineBreak < 0 ? null : whitespace.substring(lineBreak + 1);
+    }
+
+    /**
+     * Names of all identifiers, including the names of declared variables.
+     */
+    private static class UsedNames extends JavaIsoVisitor<Set<String>> {
+        @Override
+        public J.VariableDeclarations.NamedVariable visitVariable(J.VariableDeclarations.NamedVariable variable, Set<String> names) {
+            names.add(variable.getSimpleName());
+            return super.visitVariable(variable, names);
+        }
+
+        @Override
+        public J.Identifier visitIdentifier(J.Identifier identifier, Set<String> names) {
+            names.add(identifier.getSimpleName());
+            return identifier;
+        }
+    }
+
+    /**
+     * Replaces `m.get(key)` in the body of a loop over the keys of `m` by `entry.getValue()`, and tells whether the
+     * body assigns the key or the map, or calls another method of the map.
+     */
+    private static class GetValues extends JavaVisitor<Integer> {
+        private static final JavaType.FullyQualified ENTRY = JavaType.Class.build(MAP + ".Entry");
+        private static final JavaType.FullyQualified OBJECT = JavaType.Class.build("java.lang.Object");
+
+        private final Expression map;
+        private final String key;
+        private final String entry;
+        private int replaced = 0;
+        private boolean other = false;
+
+        private GetValues(Expression map, String key, String entry) {
+            this.map = map;
+            this.key = key;
+            this.entry = entry;
+        }
+
+        @Override
+        public J visitMethodInvocation(J.MethodInvocation method, Integer p) {
+            if (isSame(map, method.getSelect())) {
+                List<Expression> arguments = arguments(method);
+                if ("get".equals(method.getName().getSimpleName()) && arguments.size() == 1 &&
+                        arguments.get(0) instanceof J.Identifier && key.equals(((J.Identifier) arguments.get(0)).getSimpleName())) {
+                    replaced++;
+                    JavaType value = method.getType() == null ? null : method.getType().getResolvedSignature().getReturnType();
+                    JavaType.Method getValue = MethodInvocations.methodType(ENTRY, "getValue", value == null ? OBJECT : value,
+                            Collections.emptyList(), Collections.emptyList());
+                    return MethodInvocations.invocation(new J.Identifier(Tree.randomId(), Space.EMPTY, Markers.EMPTY, entry, null, null),
+                            "getValue", getValue, Collections.emptyList()).withPrefix(method.getPrefix());
+                }
+                other = true;
+            }
+            return super.visitMethodInvocation(method, p);
+        }
+
+        @Override
+        public J visitAssignment(J.Assignment assignment, Integer p) {
+            String variable = assignment.getVariable().printTrimmed();
+            other |= key.equals(variable) || map.printTrimmed().equals(variable);
+            return super.visitAssignment(assignment, p);
+        }
+
+        @Override
+        public J visitVariable(J.VariableDeclarations.NamedVariable variable, Integer p) {
+            other |= entry.equals(variable.getSimpleName());
+            return super.visitVariable(variable, p);
+        }
+    }
+}
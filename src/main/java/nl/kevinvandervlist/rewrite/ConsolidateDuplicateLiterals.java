@@ -0,0 +1,291 @@
+package nl.kevinvandervlist.rewrite;
+
+import lombok.EqualsAndHashCode;
+import org.openrewrite.*;
+import org.openrewrite.internal.ListUtils;
+import org.openrewrite.internal.StringUtils;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.AddImport;
+import org.openrewrite.java.JavaIsoVisitor;
+import org.openrewrite.java.JavaParser;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.tree.Flag;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaType;
+
+import java.beans.ConstructorProperties;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Repository-wide variant of {@link AvoidDuplicateLiterals}: `String` literals that occur often across all source files
+ * are moved into a single constants class. Occurrences are counted within a memory limit, see {@link LiteralCounts}.
+ * <p>
+ * The constants class is created in the configured source root, so it is visible to the code that uses it, rather than
+ * in a test source root. The initializers of existing `static final` constants are left alone.
+ */
+@EqualsAndHashCode(callSuper = true)
+public class ConsolidateDuplicateLiterals extends Recipe {
+    private static final int DEFAULT_MINIMUM_OCCURRENCES = 10;
+    private static final int DEFAULT_MEMORY_LIMIT_MEGABYTES = 64;
+
+    @Option(displayName = "Source root",
+            description = "Directory the packages of the main sources start in, to create the constants class in.",
+            example = "src/main/java")
+    private final String sourceRoot;
+
+    @Option(displayName = "Constants package",
+            description = "Package to declare the constants class in.",
+            example = "com.yourorg")
+    private final String constantsPackage;
+
+    @Option(displayName = "Constants class",
+            description = "Simple name of the class to declare the constants in. The class must not exist yet.",
+            example = "Constants")
+    private final String constantsClass;
+
+    @Option(displayName = "Minimum occurrences",
+            description = "Number of times a literal must occur across all source files to be moved into the constants class. Defaults to 10.",
+            example = "10",
+            required = false)
+    @Nullable
+    private final Integer minimumOccurrences;
+
+    @Option(displayName = "Memory limit",
+            description = "Megabytes of memory to count literals in, before counts are spilled to a table on local disk. Defaults to 64.",
+            example = "64",
+            required = false)
+    @Nullable
+    private final Integer memoryLimitMegabytes;
+
+    @ConstructorProperties({"sourceRoot", "constantsPackage", "constantsClass", "minimumOccurrences", "memoryLimitMegabytes"})
+    public ConsolidateDuplicateLiterals(String sourceRoot, String constantsPackage, String constantsClass,
+                                        @Nullable Integer minimumOccurrences, @Nullable Integer memoryLimitMegabytes) {
+        this.sourceRoot = sourceRoot;
+        this.constantsPackage = constantsPackage;
+        this.constantsClass = constantsClass;
+        this.minimumOccurrences = minimumOccurrences;
+        this.memoryLimitMegabytes = memoryLimitMegabytes;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Consolidate duplicate literals across source files.";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Move `String` literals that occur often across all source files into `public static final` fields of a shared constants class.";
+    }
+
+    @Override
+    protected List<SourceFile> visit(List<SourceFile> before, ExecutionContext ctx) {
+        String constantsFqn = constantsFqn();
+        for (SourceFile sourceFile : before) {
+            if (sourceFile instanceof J.CompilationUnit) {
+                for (J.ClassDeclaration classDecl : ((J.CompilationUnit) sourceFile).getClasses()) {
+                    if (classDecl.getType() != null && constantsFqn.equals(classDecl.getType().getFullyQualifiedName())) {
+                        // Consolidated in an earlier cycle, or declared by hand; do not touch it.
+                        return before;
+                    }
+                }
+            }
+        }
+
+        int threshold = minimumOccurrences == null ? DEFAULT_MINIMUM_OCCURRENCES : minimumOccurrences;
+        long memoryLimit = (memoryLimitMegabytes == null ? DEFAULT_MEMORY_LIMIT_MEGABYTES : memoryLimitMegabytes) * 1024L * 1024L;
+        Map<String, String> constantNameByValue = new LinkedHashMap<>();
+        List<SourceFile> after;
+        try (LiteralCounts counts = new LiteralCounts(memoryLimit)) {
+            CountLiterals countLiterals = new CountLiterals();
+            for (SourceFile sourceFile : before) {
+                if (sourceFile instanceof J.CompilationUnit) {
+                    RecipePhaseEvent analysis = RecipePhaseEvent.begin(getName(), RecipePhaseEvent.Phase.ANALYSIS);
+                    int literals = countLiterals.literals;
+                    countLiterals.visit(sourceFile, counts);
+                    analysis.end(sourceFile, countLiterals.literals - literals);
+                }
+            }
+
+            Set<String> constantNames = new HashSet<>();
+            ConstantNames names = new ConstantNames(constantNames::contains);
+            after = ListUtils.map(before, sourceFile -> {
+                if (!(sourceFile instanceof J.CompilationUnit)) {
+                    return sourceFile;
+                }
+                RecipePhaseEvent rewrite = RecipePhaseEvent.begin(getName(), RecipePhaseEvent.Phase.REWRITE);
+                Set<String> declaredNames = new HashSet<>();
+                new FindDeclaredNames().visit(sourceFile, declaredNames);
+                ReplaceWithConstants replaceWithConstants = new ReplaceWithConstants(counts, threshold, names, constantNames, constantNameByValue, declaredNames);
+                SourceFile replaced = (SourceFile) replaceWithConstants.visit(sourceFile, ctx);
+                rewrite.end(sourceFile, replaceWithConstants.literals);
+                return replaced;
+            });
+        }
+
+        if (constantNameByValue.isEmpty()) {
+            return before;
+        }
+        J.CompilationUnit constants = JavaParser.fromJavaVersion().build()
+                .parse(ctx, constantsSource(constantsPackage, constantsClass, constantNameByValue)).get(0);
+        Path path = Paths.get(sourceRoot).resolve(constantsPackage.replace('.', '/')).resolve(constantsClass + ".java");
+        ChangeEvents.record(getName(), path.toString(), "CompilationUnit", constantsFqn);
+        return ListUtils.concat(after, constants.withSourcePath(path));
+    }
+
+    private String constantsFqn() {
+        return constantsPackage.isEmpty() ? constantsClass : constantsPackage + "." + constantsClass;
+    }
+
+    private static String constantsSource(String packageName, String simpleName, Map<String, String> constantNameByValue) {
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("public final class ").append(simpleName).append(" {\n");
+        for (Map.Entry<String, String> constant : constantNameByValue.entrySet()) {
+            source.append("    public static final String ").append(constant.getValue())
+                    .append(" = \"").append(escape(constant.getKey())).append("\";\n");
+        }
+        source.append("\n    private ").append(simpleName).append("() {\n    }\n}\n");
+        return source.toString();
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': escaped.append("\\\""); break;
+                case '\\': escaped.append("\\\\"); break;
+                case '\n': escaped.append("\\n"); break;
+                case '\r': escaped.append("\\r"); break;
+                case '\t': escaped.append("\\t"); break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static boolean isStringLiteral(J.Literal literal) {
+        return JavaType.Primitive.String.equals(literal.getType()) && literal.getValue() instanceof String;
+    }
+
+    /**
+     * Whether the declaration is a constant already, which refers to its literal directly rather than through the
+     * constants class, as that would only add an indirection.
+     */
+    private static boolean isConstant(J.VariableDeclarations multiVariable) {
+        return multiVariable.hasModifier(J.Modifier.Type.Static) && multiVariable.hasModifier(J.Modifier.Type.Final);
+    }
+
+    /**
+     * Counts the literals that {@link ReplaceWithConstants} would replace, so only those count toward the threshold.
+     */
+    private static class CountLiterals extends JavaIsoVisitor<LiteralCounts> {
+        // Number of literals visited.
+        private int literals = 0;
+
+        @Override
+        public J.VariableDeclarations visitVariableDeclarations(J.VariableDeclarations multiVariable, LiteralCounts counts) {
+            return isConstant(multiVariable) ? multiVariable : super.visitVariableDeclarations(multiVariable, counts);
+        }
+
+        @Override
+        public J.Literal visitLiteral(J.Literal literal, LiteralCounts counts) {
+            literals++;
+            if (isStringLiteral(literal)) {
+                counts.add((String) literal.getValue());
+            }
+            return literal;
+        }
+    }
+
+    /**
+     * Names declared in a compilation unit, which would shadow a statically imported constant.
+     */
+    private static class FindDeclaredNames extends JavaIsoVisitor<Set<String>> {
+        @Override
+        public J.VariableDeclarations.NamedVariable visitVariable(J.VariableDeclarations.NamedVariable variable, Set<String> names) {
+            names.add(variable.getSimpleName());
+            return super.visitVariable(variable, names);
+        }
+    }
+
+    private class ReplaceWithConstants extends JavaVisitor<ExecutionContext> {
+        private final LiteralCounts counts;
+        private final int threshold;
+        private final ConstantNames names;
+        private final Set<String> constantNames;
+        private final Map<String, String> constantNameByValue;
+        private final Set<String> declaredNames;
+        private final Set<String> imported = new HashSet<>();
+        private final JavaType.FullyQualified constantsType = JavaType.Class.build(constantsFqn());
+        // Number of literals visited.
+        private int literals = 0;
+
+        private ReplaceWithConstants(LiteralCounts counts, int threshold, ConstantNames names, Set<String> constantNames,
+                                     Map<String, String> constantNameByValue, Set<String> declaredNames) {
+            this.counts = counts;
+            this.threshold = threshold;
+            this.names = names;
+            this.constantNames = constantNames;
+            this.constantNameByValue = constantNameByValue;
+            this.declaredNames = declaredNames;
+        }
+
+        @Override
+        public J visitVariableDeclarations(J.VariableDeclarations multiVariable, ExecutionContext executionContext) {
+            return isConstant(multiVariable) ? multiVariable : super.visitVariableDeclarations(multiVariable, executionContext);
+        }
+
+        @Override
+        public J visitLiteral(J.Literal literal, ExecutionContext executionContext) {
+            literals++;
+            if (!isStringLiteral(literal)) {
+                return literal;
+            }
+            String value = (String) literal.getValue();
+            String constantName = constantNameByValue.get(value);
+            if (constantName == null) {
+                if (counts.count(value) < threshold) {
+                    return literal;
+                }
+                String name = ConstantNames.toConstantName(value);
+                if (StringUtils.isBlank(name)) {
+                    return literal;
+                }
+                constantName = names.unique(name);
+                constantNames.add(constantName);
+                constantNameByValue.put(value, constantName);
+            }
+            if (declaredNames.contains(constantName)) {
+                return literal;
+            }
+            if (imported.add(constantName)) {
+                doAfterVisit(new AddImport<>(constantsFqn(), constantName, false));
+            }
+            ChangeEvents.record(ConsolidateDuplicateLiterals.this.getName(), getCursor(), "Literal", literal.getValueSource() + " -> " + constantName);
+            return new J.Identifier(
+                    Tree.randomId(),
+                    literal.getPrefix(),
+                    literal.getMarkers(),
+                    constantName,
+                    JavaType.Primitive.String,
+                    new JavaType.Variable(
+                            Flag.flagsToBitMap(new HashSet<>(Arrays.asList(Flag.Public, Flag.Static, Flag.Final))),
+                            constantName,
+                            constantsType,
+                            JavaType.Primitive.String,
+                            Collections.emptyList()
+                    )
+            );
+        }
+    }
+}
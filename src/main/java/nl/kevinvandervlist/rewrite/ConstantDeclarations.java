@@ -0,0 +1,64 @@
+package nl.kevinvandervlist.rewrite;
+
+import org.openrewrite.Cursor;
+import org.openrewrite.java.tree.J;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * The new `private static final` constants of a class. All of them are declared in a single snippet at the top of the
+ * class body, so the template is only compiled once per class. The constants are declared in the order in which they
+ * were added.
+ */
+class ConstantDeclarations {
+    private final String type;
+    private final String initializer;
+    private final String[] imports;
+    private final StringJoiner declarations = new StringJoiner("\n");
+    private final List<Object> parameters = new ArrayList<>();
+    private int size = 0;
+
+    /**
+     * @param type        simple name of the type of the constants.
+     * @param initializer template of the initializer of every constant, such as `#{any(String)}`.
+     * @param imports     types used by the declarations.
+     */
+    ConstantDeclarations(String type, String initializer, String... imports) {
+        this.type = type;
+        this.initializer = initializer;
+        this.imports = imports.clone();
+    }
+
+    /**
+     * @param name       name of the constant.
+     * @param parameters trees that fill the parameters of the initializer.
+     */
+    void add(String name, Object... parameters) {
+        declarations.add("private static final " + type + " " + name + " = " + initializer + ";");
+        for (Object parameter : parameters) {
+            this.parameters.add(parameter);
+        }
+        size++;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * The class with the constants declared before its first statement.
+     *
+     * @param cursor cursor pointing at the class declaration.
+     */
+    J.ClassDeclaration declareIn(J.ClassDeclaration c, String recipe, Cursor cursor) {
+        String snippet = declarations.toString();
+        RecipePhaseEvent template = RecipePhaseEvent.begin(recipe, RecipePhaseEvent.Phase.TEMPLATE);
+        c = c.withBody(JavaTemplateCache.apply(JavaTemplateCache.key(snippet, imports), cursor,
+                c.getBody(), c.getBody().getCoordinates().firstStatement(), parameters.toArray()));
+        template.end(cursor, size);
+        ChangeEvents.record(recipe, cursor, "ClassDeclaration", snippet);
+        return c;
+    }
+}
@@ -0,0 +1,89 @@
+package nl.kevinvandervlist.rewrite;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Generates names for `private static final` constants, following the naming convention of all caps delimited by `_`.
+ * Names are derived in a single pass over the value and memoized in a bounded cache that is shared across classes.
+ * An instance generates unique names within a single scope.
+ */
+class ConstantNames {
+    private static final int CACHE_SIZE = 4096;
+
+    private static final Map<String, String> CONSTANT_NAMES = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
+
+    private final Predicate<String> isTaken;
+    private final Map<String, Integer> nextSuffix = new HashMap<>();
+
+    /**
+     * @param isTaken whether a name already exists in the scope the names are generated for.
+     */
+    ConstantNames(Predicate<String> isTaken) {
+        this.isTaken = isTaken;
+    }
+
+    /**
+     * Generate a name that does not create a name space conflict, by appending `_1`, `_2`, ... when needed.
+     * The next suffix to try is remembered per name, so many values that map to the same name do not probe
+     * the same suffixes over and over again.
+     *
+     * @param name constant name, as returned by {@link #toConstantName(String)}.
+     * @return unique constant name.
+     */
+    String unique(String name) {
+        if (!isTaken.test(name)) {
+            return name;
+        }
+        int append = nextSuffix.getOrDefault(name, 1);
+        String newName = name + "_" + append;
+        while (isTaken.test(newName)) {
+            append++;
+            newName = name + "_" + append;
+        }
+        nextSuffix.put(name, append + 1);
+        return newName;
+    }
+
+    /**
+     * Convert a `String` value to a variable name with naming convention of all caps delimited by `_`.
+     * Special characters are filtered out to meet regex convention: ^[A-Z][A-Z0-9]*(_[A-Z0-9]+)*$
+     */
+    static String toConstantName(String value) {
+        String name = CONSTANT_NAMES.get(value);
+        if (name == null) {
+            name = transform(value);
+            CONSTANT_NAMES.put(value, name);
+        }
+        return name;
+    }
+
+    private static String transform(String value) {
+        boolean prevIsLower = false;
+        boolean prevIsCharacter = false;
+        StringBuilder newName = new StringBuilder(value.length() + 2);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            boolean endsWithSeparator = newName.length() == 0 || newName.charAt(newName.length() - 1) == '_';
+            if (i > 0 && !endsWithSeparator && (Character.isUpperCase(c) && prevIsLower || !prevIsCharacter)) {
+                newName.append('_');
+            }
+            prevIsCharacter = Character.isLetterOrDigit(c);
+            if (!prevIsCharacter) {
+                continue;
+            }
+            if (newName.length() == 0 && Character.isDigit(c)) {
+                newName.append("A_");
+            }
+            newName.append(Character.toUpperCase(c));
+            prevIsLower = Character.isLowerCase(c);
+        }
+        return newName.toString();
+    }
+}
@@ -0,0 +1,474 @@
+package nl.kevinvandervlist.rewrite;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Tree;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaIsoVisitor;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.MethodMatcher;
+import org.openrewrite.java.tree.*;
+import org.openrewrite.marker.Markers;
+import org.openrewrite.marker.SearchResult;
+
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Compile constant regular expressions once, into `private static final Pattern` fields, instead of on every call of
+ * `Pattern.compile`, `String.matches`, `String.replaceAll`, `String.replaceFirst` or `String.split`.
+ * <p>
+ * Constants are named and declared like those of {@link AvoidDuplicateLiterals}, and a regular expression that is
+ * used several times in a class gets a single constant. Existing `private static final Pattern` fields compiled from
+ * the same literal are reused. `split` with a single character that is not a metacharacter, or an escaped character
+ * that is not a letter or digit, is left alone: `String.split` does not compile a pattern for those.
+ * <p>
+ * Constants can only be declared in top-level and static nested classes. Calls in inner, local and anonymous classes
+ * use the constants of the nearest enclosing class that can declare them. Regular expressions that do not compile are
+ * left alone, so the exception is still thrown by the call rather than when the class is initialized.
+ */
+public class HoistRegexPatterns extends Recipe {
+    private static final String PATTERN_FQN = "java.util.regex.Pattern";
+
+    private static final MethodMatcher COMPILE = new MethodMatcher("java.util.regex.Pattern compile(java.lang.String)");
+    private static final MethodMatcher MATCHES = new MethodMatcher("java.lang.String matches(java.lang.String)");
+    private static final MethodMatcher REPLACE_ALL = new MethodMatcher("java.lang.String replaceAll(java.lang.String, java.lang.String)");
+    private static final MethodMatcher REPLACE_FIRST = new MethodMatcher("java.lang.String replaceFirst(java.lang.String, java.lang.String)");
+    private static final MethodMatcher SPLIT = new MethodMatcher("java.lang.String split(java.lang.String)");
+    private static final MethodMatcher SPLIT_WITH_LIMIT = new MethodMatcher("java.lang.String split(java.lang.String, int)");
+
+    private static final JavaType.FullyQualified PATTERN = JavaType.Class.build(PATTERN_FQN);
+    private static final JavaType.FullyQualified MATCHER = JavaType.Class.build("java.util.regex.Matcher");
+    private static final JavaType.FullyQualified CHAR_SEQUENCE = JavaType.Class.build("java.lang.CharSequence");
+    private static final JavaType STRING_ARRAY = new JavaType.Array(JavaType.Primitive.String);
+
+    private static final JavaType.Method MATCHER_TYPE = MethodInvocations.methodType(PATTERN, "matcher", MATCHER,
+            Collections.singletonList(CHAR_SEQUENCE), Collections.singletonList("input"));
+    private static final JavaType.Method MATCHES_TYPE = MethodInvocations.methodType(MATCHER, "matches", JavaType.Primitive.Boolean,
+            Collections.emptyList(), Collections.emptyList());
+    private static final JavaType.Method REPLACE_ALL_TYPE = MethodInvocations.methodType(MATCHER, "replaceAll", JavaType.Primitive.String,
+            Collections.singletonList(JavaType.Primitive.String), Collections.singletonList("replacement"));
+    private static final JavaType.Method REPLACE_FIRST_TYPE = MethodInvocations.methodType(MATCHER, "replaceFirst", JavaType.Primitive.String,
+            Collections.singletonList(JavaType.Primitive.String), Collections.singletonList("replacement"));
+    private static final JavaType.Method SPLIT_TYPE = MethodInvocations.methodType(PATTERN, "split", STRING_ARRAY,
+            Collections.singletonList(CHAR_SEQUENCE), Collections.singletonList("input"));
+    private static final JavaType.Method SPLIT_WITH_LIMIT_TYPE = MethodInvocations.methodType(PATTERN, "split", STRING_ARRAY,
+            Arrays.asList(CHAR_SEQUENCE, JavaType.Primitive.Int), Arrays.asList("input", "limit"));
+
+    @Override
+    public String getDisplayName() {
+        return "Hoist constant regular expressions into static final patterns";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Compile constant regular expressions once, instead of every time Pattern.compile, String.matches, " +
+                "String.replaceAll, String.replaceFirst or String.split is called.";
+    }
+
+    @Nullable
+    @Override
+    protected TreeVisitor<?, ExecutionContext> getSingleSourceApplicableTest() {
+        return new HasRegexLiteral(getName());
+    }
+
+    @Override
+    protected JavaVisitor<ExecutionContext> getVisitor() {
+        return new JavaVisitor<ExecutionContext>() {
+
+            private Map<UUID, RegexClass> scopeIndex = Collections.emptyMap();
+            private final Deque<RegexClass> classes = new ArrayDeque<>();
+
+            @Override
+            public J visitCompilationUnit(J.CompilationUnit cu, ExecutionContext executionContext) {
+                if (importsOtherPattern(cu)) {
+                    return cu;
+                }
+                RecipePhaseEvent analysis = RecipePhaseEvent.begin(HoistRegexPatterns.this.getName(), RecipePhaseEvent.Phase.ANALYSIS);
+                FindRegexes finder = new FindRegexes();
+                scopeIndex = finder.analyze(cu);
+                analysis.end(cu, finder.nodes);
+                try {
+                    return super.visitCompilationUnit(cu, executionContext);
+                } finally {
+                    scopeIndex = Collections.emptyMap();
+                }
+            }
+
+            @Override
+            public J visitClassDeclaration(J.ClassDeclaration classDecl, ExecutionContext executionContext) {
+                RegexClass regexClass = scopeIndex.get(classDecl.getId());
+                if (regexClass == null) {
+                    return super.visitClassDeclaration(classDecl, executionContext);
+                }
+
+                ConstantDeclarations newConstants = new ConstantDeclarations("Pattern", "Pattern.compile(#{any(String)})", PATTERN_FQN);
+                for (Map.Entry<String, J.Literal> regex : regexClass.regexes.entrySet()) {
+                    String variableName = regexClass.existingPatterns.get(regex.getKey());
+                    if (variableName == null) {
+                        variableName = regexClass.names.unique(constantName(regex.getKey()));
+                        regexClass.variableNames.add(variableName);
+                        newConstants.add(variableName, regex.getValue().withId(Tree.randomId()).withPrefix(Space.EMPTY));
+                    }
+                    regexClass.constants.put(regex.getKey(), variableName);
+                }
+
+                // Nested classes are visited as part of this call and are resolved from the same scope index.
+                classes.push(regexClass);
+                J.ClassDeclaration c;
+                try {
+                    c = (J.ClassDeclaration) super.visitClassDeclaration(classDecl, executionContext);
+                } finally {
+                    classes.pop();
+                }
+
+                if (!newConstants.isEmpty()) {
+                    maybeAddImport(PATTERN_FQN);
+                    c = newConstants.declareIn(c, HoistRegexPatterns.this.getName(), getCursor());
+                }
+                return c;
+            }
+
+            @Override
+            public J visitMethodInvocation(J.MethodInvocation method, ExecutionContext executionContext) {
+                J j = super.visitMethodInvocation(method, executionContext);
+                RegexClass regexClass = classes.peek();
+                String regex = regexClass == null ? null : regexClass.sites.get(method.getId());
+                if (regex == null || !(j instanceof J.MethodInvocation)) {
+                    return j;
+                }
+                J.Identifier pattern = constant(regexClass.constants.get(regex), regexClass.type);
+                J hoisted = usePattern((J.MethodInvocation) j, pattern);
+                ChangeEvents.record(HoistRegexPatterns.this.getName(), getCursor(), hoisted);
+                return hoisted;
+            }
+        };
+    }
+
+    /**
+     * The name of the constant of a regular expression: the letters and digits in it, followed by `_PATTERN`.
+     */
+    private static String constantName(String regex) {
+        String name = ConstantNames.toConstantName(regex);
+        int end = name.length();
+        while (end > 0 && name.charAt(end - 1) == '_') {
+            end--;
+        }
+        return end == 0 ? "PATTERN" : name.substring(0, end) + "_PATTERN";
+    }
+
+    /**
+     * The call, with the regular expression replaced by the precompiled pattern.
+     */
+    private static J usePattern(J.MethodInvocation m, J.Identifier pattern) {
+        if (COMPILE.matches(m)) {
+            return pattern.withPrefix(m.getPrefix());
+        }
+        List<Expression> arguments = m.getArguments();
+        Expression input = m.getSelect().withPrefix(Space.EMPTY);
+        J.MethodInvocation usage;
+        if (MATCHES.matches(m)) {
+            usage = MethodInvocations.invocation(matcher(pattern, input), "matches", MATCHES_TYPE, Collections.emptyList());
+        } else if (REPLACE_ALL.matches(m) || REPLACE_FIRST.matches(m)) {
+            usage = MethodInvocations.invocation(matcher(pattern, input), m.getName().getSimpleName(),
+                    REPLACE_ALL.matches(m) ? REPLACE_ALL_TYPE : REPLACE_FIRST_TYPE,
+                    Collections.singletonList(arguments.get(1).withPrefix(Space.EMPTY)));
+        } else if (SPLIT.matches(m)) {
+            usage = MethodInvocations.invocation(pattern, "split", SPLIT_TYPE, Collections.singletonList(input));
+        } else {
+            usage = MethodInvocations.invocation(pattern, "split", SPLIT_WITH_LIMIT_TYPE,
+                    Arrays.asList(input, arguments.get(1).withPrefix(Space.format(" "))));
+        }
+        return usage.withPrefix(m.getPrefix());
+    }
+
+    private static J.MethodInvocation matcher(J.Identifier pattern, Expression input) {
+        return MethodInvocations.invocation(pattern, "matcher", MATCHER_TYPE, Collections.singletonList(input));
+    }
+
+    /**
+     * A reference to the `private static final Pattern` with the provided variable name.
+     */
+    private static J.Identifier constant(String variableName, @Nullable JavaType.FullyQualified owner) {
+        return new J.Identifier(
+                Tree.randomId(),
+                Space.EMPTY,
+                Markers.EMPTY,
+                variableName,
+                PATTERN,
+                new JavaType.Variable(
+                        Flag.flagsToBitMap(new HashSet<>(Arrays.asList(Flag.Private, Flag.Static, Flag.Final))),
+                        variableName,
+                        owner,
+                        PATTERN,
+                        Collections.emptyList()
+                )
+        );
+    }
+
+    /**
+     * The constant regular expression of a call that compiles one, or `null` when the call does not compile a
+     * pattern or the regular expression is not a valid literal.
+     */
+    @Nullable
+    private static String regexOf(J.MethodInvocation m) {
+        boolean isSplit = SPLIT.matches(m) || SPLIT_WITH_LIMIT.matches(m);
+        if (!COMPILE.matches(m)) {
+            if (m.getSelect() == null || !(isSplit || MATCHES.matches(m) || REPLACE_ALL.matches(m) || REPLACE_FIRST.matches(m))) {
+                return null;
+            }
+        }
+        Expression argument = m.getArguments().get(0);
+        if (!(argument instanceof J.Literal) || !(((J.Literal) argument).getValue() instanceof String)) {
+            return null;
+        }
+        String regex = (String) ((J.Literal) argument).getValue();
+        return isSplit && isSplitFastPath(regex) ? null : regex;
+    }
+
+    /**
+     * Whether `String.split` splits on the regular expression without compiling it: a single character that is not
+     * one of `.$|()[{^?*+\`, or a backslash followed by a character that is not an ASCII letter or digit.
+     */
+    static boolean isSplitFastPath(String regex) {
+        if (regex.length() == 1) {
+            return ".$|()[{^?*+\\".indexOf(regex.charAt(0)) < 0;
+        }
+        if (regex.length() == 2 && regex.charAt(0) == '\\') {
+            char c = regex.charAt(1);
+            return !(c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z');
+        }
+        return false;
+    }
+
+    private static boolean isValid(String regex) {
+        try {
+            Pattern.compile(regex);
+            return true;
+        } catch (PatternSyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A `Pattern` that is not `java.util.regex.Pattern` can not be referred to by its simple name.
+     */
+    private static boolean importsOtherPattern(J.CompilationUnit cu) {
+        for (J.Import anImport : cu.getImports()) {
+            if (!anImport.isStatic() && "Pattern".equals(anImport.getQualid().getSimpleName()) &&
+                    !PATTERN_FQN.equals(anImport.getTypeName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cheap test whether a compilation unit has any call that compiles a constant regular expression. The traversal
+     * stops as soon as such a call is found.
+     */
+    private static class HasRegexLiteral extends JavaIsoVisitor<ExecutionContext> {
+        private final String recipe;
+        private boolean found = false;
+        private int invocations = 0;
+
+        private HasRegexLiteral(String recipe) {
+            this.recipe = recipe;
+        }
+
+        @Override
+        public J visit(@Nullable Tree tree, ExecutionContext executionContext) {
+            if (tree instanceof J.CompilationUnit) {
+                found = false;
+                invocations = 0;
+            } else if (found) {
+                return (J) tree;
+            }
+            return super.visit(tree, executionContext);
+        }
+
+        @Override
+        public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu, ExecutionContext executionContext) {
+            RecipePhaseEvent applicability = RecipePhaseEvent.begin(recipe, RecipePhaseEvent.Phase.APPLICABILITY);
+            super.visitCompilationUnit(cu, executionContext);
+            applicability.end(cu, invocations);
+            return found ? cu.withMarkers(cu.getMarkers().addIfAbsent(new SearchResult(Tree.randomId(), null))) : cu;
+        }
+
+        @Override
+        public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method, ExecutionContext executionContext) {
+            invocations++;
+            if (regexOf(method) != null) {
+                found = true;
+                return method;
+            }
+            return super.visitMethodInvocation(method, executionContext);
+        }
+    }
+
+    /**
+     * Everything `HoistRegexPatterns` needs to know about a class that can declare constants: the calls that compile
+     * a constant regular expression, the variable names that are in use and the existing `private static final Pattern`
+     * fields. Inner, local and anonymous classes are part of the nearest enclosing class that can declare constants.
+     * <p>
+     * Only fields declared before any other static initialization are reused: code that initializes the class before
+     * a field is assigned could call a rewritten method and find the field still `null`. New constants are declared at
+     * the top of the class, so they are always assigned first.
+     */
+    private static class RegexClass extends ClassScope {
+        // Regular expressions in the order in which they first occur, with one of their literals to declare the constant with.
+        private final Map<String, J.Literal> regexes = new LinkedHashMap<>();
+        private final Map<String, String> existingPatterns = new HashMap<>();
+        // Whether a static initializer block, or a static field with an initializer, has been seen so far.
+        private boolean staticInitializerSeen = false;
+        private final Map<UUID, String> sites = new HashMap<>();
+        private final Map<String, String> constants = new HashMap<>();
+
+        private RegexClass(@Nullable RegexClass enclosing, @Nullable JavaType.FullyQualified type) {
+            super(enclosing, type);
+        }
+    }
+
+    /**
+     * Builds the scope index of a compilation unit in a single traversal: one `RegexClass` per class that can declare
+     * constants, keyed by the id of the declaration.
+     */
+    private static class FindRegexes extends JavaIsoVisitor<Map<UUID, RegexClass>> {
+        private final Deque<RegexClass> classes = new ArrayDeque<>();
+        // Whether each enclosing class declaration, innermost first, has a `RegexClass` of its own.
+        private final Deque<Boolean> declaresConstants = new ArrayDeque<>();
+        // Whether the innermost enclosing code runs once, when the class is initialized.
+        private final Deque<Boolean> staticInitialization = new ArrayDeque<>();
+        private final Set<UUID> memberClasses = new HashSet<>();
+        private final Map<String, Boolean> validRegexes = new HashMap<>();
+
+        // Number of method invocations and variables visited.
+        private int nodes = 0;
+
+        Map<UUID, RegexClass> analyze(J.CompilationUnit cu) {
+            Map<UUID, RegexClass> scopeIndex = new HashMap<>();
+            visit(cu, scopeIndex);
+            return scopeIndex;
+        }
+
+        @Override
+        public J.ClassDeclaration visitClassDeclaration(J.ClassDeclaration classDecl, Map<UUID, RegexClass> scopeIndex) {
+            for (Statement statement : classDecl.getBody().getStatements()) {
+                if (statement instanceof J.ClassDeclaration) {
+                    memberClasses.add(statement.getId());
+                }
+            }
+            boolean canDeclareConstants = classDecl.getKind() == J.ClassDeclaration.Kind.Type.Class &&
+                    (declaresConstants.isEmpty() ||
+                            memberClasses.contains(classDecl.getId()) && classDecl.hasModifier(J.Modifier.Type.Static));
+            if (canDeclareConstants) {
+                RegexClass regexClass = new RegexClass(classes.peek(), classDecl.getType());
+                scopeIndex.put(classDecl.getId(), regexClass);
+                classes.push(regexClass);
+            }
+            declaresConstants.push(canDeclareConstants);
+            staticInitialization.push(false);
+            try {
+                return super.visitClassDeclaration(classDecl, scopeIndex);
+            } finally {
+                staticInitialization.pop();
+                declaresConstants.pop();
+                if (canDeclareConstants) {
+                    classes.pop();
+                }
+            }
+        }
+
+        @Override
+        public J.VariableDeclarations visitVariableDeclarations(J.VariableDeclarations multiVariable, Map<UUID, RegexClass> scopeIndex) {
+            if (!multiVariable.hasModifier(J.Modifier.Type.Static)) {
+                return super.visitVariableDeclarations(multiVariable, scopeIndex);
+            }
+            if (!classes.isEmpty() && Boolean.TRUE.equals(declaresConstants.peek())) {
+                RegexClass regexClass = classes.peek();
+                for (J.VariableDeclarations.NamedVariable variable : multiVariable.getVariables()) {
+                    String regex = variable.getInitializer() instanceof J.MethodInvocation &&
+                            COMPILE.matches((J.MethodInvocation) variable.getInitializer()) ?
+                            regexOf((J.MethodInvocation) variable.getInitializer()) :
+                            null;
+                    if (regex != null && isPrivateStaticFinal(multiVariable) && !regexClass.staticInitializerSeen) {
+                        regexClass.existingPatterns.putIfAbsent(regex, variable.getSimpleName());
+                    } else if (variable.getInitializer() != null && !(variable.getInitializer() instanceof J.Literal)) {
+                        regexClass.staticInitializerSeen = true;
+                    }
+                }
+            }
+            return inStaticInitialization(true, () -> super.visitVariableDeclarations(multiVariable, scopeIndex));
+        }
+
+        @Override
+        public J.Block visitBlock(J.Block block, Map<UUID, RegexClass> scopeIndex) {
+            if (!block.isStatic()) {
+                return super.visitBlock(block, scopeIndex);
+            }
+            if (!classes.isEmpty() && Boolean.TRUE.equals(declaresConstants.peek())) {
+                classes.peek().staticInitializerSeen = true;
+            }
+            return inStaticInitialization(true, () -> super.visitBlock(block, scopeIndex));
+        }
+
+        @Override
+        public J.MethodDeclaration visitMethodDeclaration(J.MethodDeclaration method, Map<UUID, RegexClass> scopeIndex) {
+            return inStaticInitialization(false, () -> super.visitMethodDeclaration(method, scopeIndex));
+        }
+
+        @Override
+        public J.Lambda visitLambda(J.Lambda lambda, Map<UUID, RegexClass> scopeIndex) {
+            return inStaticInitialization(false, () -> super.visitLambda(lambda, scopeIndex));
+        }
+
+        @Override
+        public J.NewClass visitNewClass(J.NewClass newClass, Map<UUID, RegexClass> scopeIndex) {
+            return newClass.getBody() == null ?
+                    super.visitNewClass(newClass, scopeIndex) :
+                    inStaticInitialization(false, () -> super.visitNewClass(newClass, scopeIndex));
+        }
+
+        private <T> T inStaticInitialization(boolean isStaticInitialization, Supplier<T> visit) {
+            staticInitialization.push(isStaticInitialization);
+            try {
+                return visit.get();
+            } finally {
+                staticInitialization.pop();
+            }
+        }
+
+        @Override
+        public J.VariableDeclarations.NamedVariable visitVariable(J.VariableDeclarations.NamedVariable variable, Map<UUID, RegexClass> scopeIndex) {
+            nodes++;
+            if (!classes.isEmpty()) {
+                classes.peek().variableNames.add(variable.getSimpleName());
+            }
+            return super.visitVariable(variable, scopeIndex);
+        }
+
+        @Override
+        public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method, Map<UUID, RegexClass> scopeIndex) {
+            nodes++;
+            RegexClass regexClass = classes.peek();
+            // Code that runs once gains nothing, and could run before an existing field it would reuse is initialized.
+            if (regexClass != null && !Boolean.TRUE.equals(staticInitialization.peek())) {
+                String regex = regexOf(method);
+                if (regex != null && validRegexes.computeIfAbsent(regex, HoistRegexPatterns::isValid)) {
+                    regexClass.regexes.putIfAbsent(regex, (J.Literal) method.getArguments().get(0));
+                    regexClass.sites.put(method.getId(), regex);
+                }
+            }
+            return super.visitMethodInvocation(method, scopeIndex);
+        }
+
+        private static boolean isPrivateStaticFinal(J.VariableDeclarations declaration) {
+            return declaration.hasModifier(J.Modifier.Type.Private) &&
+                    declaration.hasModifier(J.Modifier.Type.Static) &&
+                    declaration.hasModifier(J.Modifier.Type.Final);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package nl.kevinvandervlist.rewrite;
+
+import org.openrewrite.Cursor;
+import org.openrewrite.java.JavaTemplate;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaCoordinates;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * `JavaTemplate`s shared by all recipes, files and visitor instances on a thread, keyed by snippet and imports.
+ * A template is bound to the cursor of the visitor that applies it only for the duration of {@link #apply}. Each thread
+ * has templates of its own, so threads that visit in parallel never wait for each other. The least recently used
+ * templates of a thread are evicted beyond {@link #MAX_SIZE}.
+ */
+public final class JavaTemplateCache {
+    public static final int MAX_SIZE = 256;
+
+    private static final ThreadLocal<Cursor> CURSOR = new ThreadLocal<>();
+
+    private static final ThreadLocal<Map<Key, JavaTemplate>> TEMPLATES = ThreadLocal.withInitial(() ->
+            new LinkedHashMap<Key, JavaTemplate>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, JavaTemplate> eldest) {
+                    return size() > MAX_SIZE;
+                }
+            });
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private JavaTemplateCache() {
+    }
+
+    public static Key key(String snippet, String... imports) {
+        return new Key(snippet, imports);
+    }
+
+    /**
+     * Apply the template for the key to a tree, as `tree.withTemplate(template, coordinates, parameters)` would.
+     *
+     * @param cursor cursor of the visitor that applies the template.
+     */
+    public static <J2 extends J> J2 apply(Key key, Cursor cursor, J tree, JavaCoordinates coordinates, Object... parameters) {
+        JavaTemplate template = get(key);
+        CURSOR.set(cursor);
+        try {
+            return tree.withTemplate(template, coordinates, parameters);
+        } finally {
+            CURSOR.remove();
+        }
+    }
+
+    private static JavaTemplate get(Key key) {
+        Map<Key, JavaTemplate> templates = TEMPLATES.get();
+        JavaTemplate template = templates.get(key);
+        if (template != null) {
+            HITS.increment();
+            return template;
+        }
+        MISSES.increment();
+        template = JavaTemplate.builder(CURSOR::get, key.snippet)
+                .imports(key.imports)
+                .build();
+        templates.put(key, template);
+        return template;
+    }
+
+    public static long hits() {
+        return HITS.sum();
+    }
+
+    public static long misses() {
+        return MISSES.sum();
+    }
+
+    /**
+     * Number of templates cached for the current thread.
+     */
+    public static int size() {
+        return TEMPLATES.get().size();
+    }
+
+    public static final class Key {
+        private final String snippet;
+        private final String[] imports;
+        private final int hashCode;
+
+        private Key(String snippet, String[] imports) {
+            this.snippet = snippet;
+            this.imports = imports.clone();
+            this.hashCode = 31 * snippet.hashCode() + Arrays.hashCode(imports);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return snippet.equals(key.snippet) && Arrays.equals(imports, key.imports);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package nl.kevinvandervlist.rewrite;
+
+import org.openrewrite.internal.lang.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts occurrences of `String` values within a memory limit. Counts are kept in memory until the estimated size of
+ * the in-memory table exceeds the limit; they are then added to a memory-mapped table on local disk, which is keyed by
+ * a 64-bit fingerprint of the value.
+ */
+class LiteralCounts implements Closeable {
+    // Rough size of a `HashMap` entry with a `String` key and an `int[]` value, excluding the characters of the key.
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long memoryLimit;
+    private final Map<String, int[]> inMemory = new HashMap<>();
+    private long inMemoryBytes = 0;
+
+    @Nullable
+    private SpillTable spilled;
+
+    /**
+     * @param memoryLimit maximum number of bytes to use for counts in memory.
+     */
+    LiteralCounts(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+    }
+
+    void add(String value) {
+        int[] count = inMemory.get(value);
+        if (count == null) {
+            count = new int[1];
+            inMemory.put(value, count);
+            inMemoryBytes += ENTRY_OVERHEAD + 2L * value.length();
+        }
+        count[0]++;
+        if (inMemoryBytes > memoryLimit) {
+            spill();
+        }
+    }
+
+    int count(String value) {
+        int[] count = inMemory.get(value);
+        int total = count == null ? 0 : count[0];
+        if (spilled != null) {
+            total += spilled.get(fingerprint(value));
+        }
+        return total;
+    }
+
+    boolean hasSpilled() {
+        return spilled != null;
+    }
+
+    private void spill() {
+        try {
+            if (spilled == null) {
+                spilled = new SpillTable(Math.max(1024, Integer.highestOneBit(inMemory.size()) * 4));
+            }
+            for (Map.Entry<String, int[]> entry : inMemory.entrySet()) {
+                spilled.add(fingerprint(entry.getKey()), entry.getValue()[0]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        inMemory.clear();
+        inMemoryBytes = 0;
+    }
+
+    @Override
+    public void close() {
+        if (spilled != null) {
+            spilled.close();
+            spilled = null;
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the characters of the value. Zero marks an empty slot, so it is never returned.
+     */
+    static long fingerprint(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * Open addressing hash table of fingerprint to count in a memory-mapped temporary file.
+     * Every slot holds a `long` fingerprint and an `int` count.
+     */
+    private static class SpillTable implements Closeable {
+        private static final int SLOT_SIZE = 16;
+        // A single mapping cannot exceed 2GB.
+        private static final int MAX_CAPACITY = 1 << 26;
+
+        private Path file;
+        private FileChannel channel;
+        private MappedByteBuffer slots;
+        private int capacity;
+        private int size = 0;
+
+        private SpillTable(int capacity) throws IOException {
+            map(capacity);
+        }
+
+        private void map(int newCapacity) throws IOException {
+            capacity = newCapacity;
+            file = Files.createTempFile("literal-counts", ".bin");
+            file.toFile().deleteOnExit();
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            slots = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * SLOT_SIZE);
+        }
+
+        private int slotOf(long fingerprint) {
+            int mask = capacity - 1;
+            int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+            while (true) {
+                long existing = slots.getLong(slot * SLOT_SIZE);
+                if (existing == 0 || existing == fingerprint) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private int get(long fingerprint) {
+            int slot = slotOf(fingerprint);
+            return slots.getLong(slot * SLOT_SIZE) == 0 ? 0 : slots.getInt(slot * SLOT_SIZE + 8);
+        }
+
+        private void add(long fingerprint, int count) throws IOException {
+            if ((size + 1) * 2 > capacity) {
+                grow();
+            }
+            int slot = slotOf(fingerprint);
+            if (slots.getLong(slot * SLOT_SIZE) == 0) {
+                slots.putLong(slot * SLOT_SIZE, fingerprint);
+                size++;
+            }
+            slots.putInt(slot * SLOT_SIZE + 8, slots.getInt(slot * SLOT_SIZE + 8) + count);
+        }
+
+        private void grow() throws IOException {
+            if (capacity >= MAX_CAPACITY) {
+                throw new IllegalStateException("Too many distinct literals to count: " + size);
+            }
+            MappedByteBuffer oldSlots = slots;
+            int oldCapacity = capacity;
+            close();
+            map(oldCapacity * 2);
+            for (int slot = 0; slot < oldCapacity; slot++) {
+                long fingerprint = oldSlots.getLong(slot * SLOT_SIZE);
+                if (fingerprint != 0) {
+                    int newSlot = slotOf(fingerprint);
+                    slots.putLong(newSlot * SLOT_SIZE, fingerprint);
+                    slots.putInt(newSlot * SLOT_SIZE + 8, oldSlots.getInt(slot * SLOT_SIZE + 8));
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                channel.close();
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // Temporary file is also removed on exit.
+            }
+        }
+    }
+}
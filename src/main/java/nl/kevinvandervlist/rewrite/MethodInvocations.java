@@ -0,0 +1,51 @@
+package nl.kevinvandervlist.rewrite;
+
+import org.openrewrite.Tree;
+import org.openrewrite.java.tree.*;
+import org.openrewrite.marker.Markers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Method invocations built directly as trees, with their types, for recipes that insert them often enough that
+ * compiling a template for every insertion is too expensive.
+ */
+public final class MethodInvocations {
+    private MethodInvocations() {
+    }
+
+    /**
+     * `select.name(arguments)`, without a prefix.
+     */
+    public static J.MethodInvocation invocation(Expression select, String name, JavaType.Method type, List<Expression> arguments) {
+        List<JRightPadded<Expression>> paddedArguments = new ArrayList<>(Math.max(1, arguments.size()));
+        if (arguments.isEmpty()) {
+            paddedArguments.add(JRightPadded.build(new J.Empty(Tree.randomId(), Space.EMPTY, Markers.EMPTY)));
+        }
+        for (Expression argument : arguments) {
+            paddedArguments.add(JRightPadded.build(argument));
+        }
+        return new J.MethodInvocation(
+                Tree.randomId(),
+                Space.EMPTY,
+                Markers.EMPTY,
+                JRightPadded.build(select),
+                null,
+                new J.Identifier(Tree.randomId(), Space.EMPTY, Markers.EMPTY, name, null, null),
+                JContainer.build(Space.EMPTY, paddedArguments, Markers.EMPTY),
+                type
+        );
+    }
+
+    /**
+     * The type of a public instance method.
+     */
+    public static JavaType.Method methodType(JavaType.FullyQualified declaringType, String name, JavaType returnType,
+                                             List<JavaType> parameterTypes, List<String> parameterNames) {
+        JavaType.Method.Signature signature = new JavaType.Method.Signature(returnType, parameterTypes);
+        return JavaType.Method.build(Collections.singleton(Flag.Public), declaringType, name, signature, signature,
+                parameterNames, Collections.emptyList(), Collections.emptyList());
+    }
+}
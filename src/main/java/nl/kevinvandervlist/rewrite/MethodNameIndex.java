@@ -0,0 +1,147 @@
+package nl.kevinvandervlist.rewrite;
+
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaIsoVisitor;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaType;
+
+import java.util.*;
+
+/**
+ * Index of the method names of every type declared in a set of source files, including the names the type inherits
+ * from its supertypes. Naming recipes use it to check whether a new method name is already taken: any method with the
+ * same name, whatever its parameters, would turn a rename into an overload or a clash.
+ * Of the supertypes that are not part of the source files, only the methods of `java.lang.Object` are known.
+ */
+public class MethodNameIndex {
+    private static final Set<String> OBJECT_METHODS = new HashSet<>(Arrays.asList(
+            "clone", "equals", "finalize", "getClass", "hashCode", "notify", "notifyAll", "toString", "wait"));
+
+    private final Map<String, Set<String>> declared = new HashMap<>();
+    private final Map<String, List<String>> supertypes = new HashMap<>();
+    private final Map<String, List<String>> subtypes = new HashMap<>();
+
+    // Declared and inherited method names per type, computed on first use.
+    private final Map<String, Set<String>> visible = new HashMap<>();
+
+    public void addType(String fullyQualifiedName, Collection<String> directSupertypes) {
+        declared.computeIfAbsent(fullyQualifiedName, k -> new HashSet<>());
+        List<String> types = supertypes.computeIfAbsent(fullyQualifiedName, k -> new ArrayList<>(directSupertypes.size()));
+        for (String supertype : directSupertypes) {
+            types.add(supertype);
+            subtypes.computeIfAbsent(supertype, k -> new ArrayList<>()).add(fullyQualifiedName);
+        }
+        invalidate(fullyQualifiedName);
+    }
+
+    public void addMethod(String fullyQualifiedName, String methodName) {
+        if (declared.computeIfAbsent(fullyQualifiedName, k -> new HashSet<>()).add(methodName)) {
+            invalidate(fullyQualifiedName);
+        }
+    }
+
+    /**
+     * Whether the type declares or inherits a method with the given name.
+     */
+    public boolean hasMethod(String fullyQualifiedName, String methodName) {
+        return visibleNames(fullyQualifiedName).contains(methodName);
+    }
+
+    /**
+     * Whether the type, or any of its subtypes in the index, declares or inherits a method with the given name.
+     */
+    public boolean hasMethodInHierarchy(String fullyQualifiedName, String methodName) {
+        if (hasMethod(fullyQualifiedName, methodName)) {
+            return true;
+        }
+        for (String subtype : subtypes.getOrDefault(fullyQualifiedName, Collections.emptyList())) {
+            if (hasMethodInHierarchy(subtype, methodName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the type is the given supertype, or extends or implements it directly or indirectly.
+     */
+    public boolean isSubtypeOf(String fullyQualifiedName, String supertype) {
+        return isSubtypeOf(fullyQualifiedName, supertype, new HashSet<>());
+    }
+
+    private boolean isSubtypeOf(String fullyQualifiedName, String supertype, Set<String> visited) {
+        if (fullyQualifiedName.equals(supertype)) {
+            return true;
+        }
+        if (!visited.add(fullyQualifiedName)) {
+            return false;
+        }
+        for (String direct : supertypes.getOrDefault(fullyQualifiedName, Collections.emptyList())) {
+            if (isSubtypeOf(direct, supertype, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<String> visibleNames(String fullyQualifiedName) {
+        Set<String> names = visible.get(fullyQualifiedName);
+        if (names == null) {
+            names = new HashSet<>(OBJECT_METHODS);
+            names.addAll(declared.getOrDefault(fullyQualifiedName, Collections.emptySet()));
+            // Mark the type as being computed, so cyclic type hierarchies in broken code terminate.
+            visible.put(fullyQualifiedName, names);
+            for (String supertype : supertypes.getOrDefault(fullyQualifiedName, Collections.emptyList())) {
+                names.addAll(visibleNames(supertype));
+            }
+        }
+        return names;
+    }
+
+    private void invalidate(String fullyQualifiedName) {
+        if (visible.remove(fullyQualifiedName) != null) {
+            for (String subtype : subtypes.getOrDefault(fullyQualifiedName, Collections.emptyList())) {
+                invalidate(subtype);
+            }
+        }
+    }
+
+    /**
+     * Adds the types and methods of the visited source files to an index.
+     */
+    public static class Indexer extends JavaIsoVisitor<MethodNameIndex> {
+        @Override
+        public J.ClassDeclaration visitClassDeclaration(J.ClassDeclaration classDecl, MethodNameIndex index) {
+            JavaType.FullyQualified type = classDecl.getType();
+            if (type != null) {
+                index.addType(type.getFullyQualifiedName(), supertypesOf(type));
+            }
+            return super.visitClassDeclaration(classDecl, index);
+        }
+
+        @Override
+        public J.MethodDeclaration visitMethodDeclaration(J.MethodDeclaration method, MethodNameIndex index) {
+            String declaringType = declaringTypeOf(method);
+            if (declaringType != null) {
+                index.addMethod(declaringType, method.getSimpleName());
+            }
+            return super.visitMethodDeclaration(method, index);
+        }
+
+        @Nullable
+        protected static String declaringTypeOf(J.MethodDeclaration method) {
+            return method.getType() == null ? null : method.getType().getDeclaringType().getFullyQualifiedName();
+        }
+
+        private static List<String> supertypesOf(JavaType.FullyQualified type) {
+            List<String> supertypes = new ArrayList<>();
+            if (type.getSupertype() != null) {
+                supertypes.add(type.getSupertype().getFullyQualifiedName());
+            }
+            for (JavaType.FullyQualified anInterface : type.getInterfaces()) {
+                supertypes.add(anInterface.getFullyQualifiedName());
+            }
+            return supertypes;
+        }
+    }
+}
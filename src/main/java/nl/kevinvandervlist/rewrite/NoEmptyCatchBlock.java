@@ -1,13 +1,71 @@
 package nl.kevinvandervlist.rewrite;
 
+import lombok.EqualsAndHashCode;
 import org.openrewrite.ExecutionContext;
+import org.openrewrite.Option;
 import org.openrewrite.Recipe;
+import org.openrewrite.Tree;
 import org.openrewrite.TreeVisitor;
-import org.openrewrite.java.JavaTemplate;
+import org.openrewrite.Validated;
+import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.java.JavaVisitor;
-import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.*;
+import org.openrewrite.marker.Markers;
 
+import java.beans.ConstructorProperties;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fill empty catch blocks with a statement that handles the exception. The statement is built directly as a tree,
+ * with its types, instead of being compiled from a template for every catch block.
+ */
+@EqualsAndHashCode(callSuper = true)
 public class NoEmptyCatchBlock extends Recipe {
+    private static final String PRINT_STACK_TRACE = "printStackTrace";
+    private static final String LOGGER = "logger";
+    private static final String RETHROW = "rethrow";
+    private static final List<String> HANDLERS = Arrays.asList(PRINT_STACK_TRACE, LOGGER, RETHROW);
+
+    private static final List<String> LOGGER_TYPES = Arrays.asList("org.slf4j.Logger", "org.apache.logging.log4j.Logger");
+
+    private static final JavaType.FullyQualified THROWABLE = JavaType.Class.build("java.lang.Throwable");
+
+    private static final JavaType.Method PRINT_STACK_TRACE_TYPE =
+            MethodInvocations.methodType(THROWABLE, "printStackTrace", JavaType.Primitive.Void, Collections.emptyList(), Collections.emptyList());
+
+    private static final JavaType.Method GET_MESSAGE_TYPE =
+            MethodInvocations.methodType(THROWABLE, "getMessage", JavaType.Primitive.String, Collections.emptyList(), Collections.emptyList());
+
+    @Option(displayName = "Handler",
+            description = "How an empty catch block handles the exception: `printStackTrace`, `logger` or `rethrow`. " +
+                    "`logger` logs to a static SLF4J or Log4j 2 logger field of the class, and `rethrow` only rethrows " +
+                    "unchecked exceptions. Falls back to `printStackTrace` otherwise. Defaults to `printStackTrace`.",
+            example = "logger",
+            required = false)
+    @Nullable
+    private final String handler;
+
+    public NoEmptyCatchBlock() {
+        this(null);
+    }
+
+    @ConstructorProperties({"handler"})
+    public NoEmptyCatchBlock(@Nullable String handler) {
+        this.handler = handler;
+    }
+
+    private String handler() {
+        return handler == null ? PRINT_STACK_TRACE : handler;
+    }
+
+    @Override
+    public Validated validate() {
+        return super.validate().and(Validated.test("handler", "must be one of " + String.join(", ", HANDLERS),
+                handler, h -> h == null || HANDLERS.contains(h)));
+    }
+
     @Override
     public String getDisplayName() {
         return "Do not have empty catch blocks";
@@ -21,9 +79,6 @@ public class NoEmptyCatchBlock extends Recipe {
     @Override
     protected TreeVisitor<?, ExecutionContext> getVisitor() {
         return new JavaVisitor<ExecutionContext>() {
-            private final JavaTemplate newPrintStackTrace = JavaTemplate
-                    .builder(this::getCursor, "#{any(java.lang.Exception)}.printStackTrace()")
-                    .build();
             @Override
             public J visitCatch(J.Try.Catch _catch, ExecutionContext executionContext) {
                 J.Block body = _catch.getBody();
@@ -38,13 +93,130 @@ public class NoEmptyCatchBlock extends Recipe {
                             .get(0)
                             .getName();
 
-                    J.Block updatedBody = body.withTemplate(newPrintStackTrace, body.getCoordinates().firstStatement(), var);
-                    System.out.println(updatedBody);
+                    RecipePhaseEvent rewrite = RecipePhaseEvent.begin(NoEmptyCatchBlock.this.getName(), RecipePhaseEvent.Phase.REWRITE);
+                    J.Block updatedBody = withStatement(body, handle(var), getCursor().firstEnclosing(J.Try.class));
+                    rewrite.end(getCursor(), 1);
+                    ChangeEvents.record(NoEmptyCatchBlock.this.getName(), getCursor(), updatedBody);
                     return super.visitCatch(_catch.withBody(updatedBody), executionContext);
                 } else {
                     return super.visitCatch(_catch, executionContext);
                 }
             }
+
+            private Statement handle(J.Identifier exception) {
+                switch (handler()) {
+                    case LOGGER:
+                        J.Identifier logger = findLogger();
+                        if (logger != null) {
+                            return logError(logger, exception);
+                        }
+                        break;
+                    case RETHROW:
+                        if (isUnchecked(exception.getType())) {
+                            return new J.Throw(Tree.randomId(), Space.EMPTY, Markers.EMPTY, reference(exception, Space.format(" ")));
+                        }
+                        break;
+                    default:
+                        break;
+                }
+                return MethodInvocations.invocation(reference(exception, Space.EMPTY), "printStackTrace", PRINT_STACK_TRACE_TYPE, Collections.emptyList());
+            }
+
+            /**
+             * A static logger field declared by the class enclosing the catch block, usable from any method.
+             */
+            @Nullable
+            private J.Identifier findLogger() {
+                J.ClassDeclaration classDecl = getCursor().firstEnclosing(J.ClassDeclaration.class);
+                if (classDecl == null) {
+                    return null;
+                }
+                for (Statement statement : classDecl.getBody().getStatements()) {
+                    if (!(statement instanceof J.VariableDeclarations)) {
+                        continue;
+                    }
+                    J.VariableDeclarations declarations = (J.VariableDeclarations) statement;
+                    JavaType.FullyQualified type = TypeUtils.asFullyQualified(declarations.getType());
+                    if (type != null && declarations.hasModifier(J.Modifier.Type.Static) &&
+                            LOGGER_TYPES.contains(type.getFullyQualifiedName())) {
+                        return declarations.getVariables().get(0).getName();
+                    }
+                }
+                return null;
+            }
         };
     }
+
+    /**
+     * `logger.error(exception.getMessage(), exception)`
+     */
+    private static J.MethodInvocation logError(J.Identifier logger, J.Identifier exception) {
+        JavaType.FullyQualified loggerType = TypeUtils.asFullyQualified(logger.getType());
+        JavaType.Method error = MethodInvocations.methodType(loggerType == null ? JavaType.Class.build(LOGGER_TYPES.get(0)) : loggerType,
+                "error", JavaType.Primitive.Void,
+                Arrays.asList(JavaType.Primitive.String, THROWABLE), Arrays.asList("msg", "t"));
+        J.MethodInvocation message = MethodInvocations.invocation(reference(exception, Space.EMPTY), "getMessage", GET_MESSAGE_TYPE, Collections.emptyList());
+        return MethodInvocations.invocation(reference(logger, Space.EMPTY), "error", error,
+                Arrays.asList(message, reference(exception, Space.format(" "))));
+    }
+
+    private static J.Identifier reference(J.Identifier variable, Space prefix) {
+        return variable.withId(Tree.randomId()).withPrefix(prefix).withMarkers(Markers.EMPTY);
+    }
+
+    /**
+     * Only unchecked exceptions can be rethrown without changing the signature of the enclosing method.
+     */
+    private static boolean isUnchecked(@Nullable JavaType type) {
+        for (JavaType.FullyQualified t = TypeUtils.asFullyQualified(type); t != null; t = t.getSupertype()) {
+            String name = t.getFullyQualifiedName();
+            if ("java.lang.RuntimeException".equals(name) || "java.lang.Error".equals(name)) {
+                return true;
+            }
+            if ("java.lang.Exception".equals(name) || "java.lang.Throwable".equals(name)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The empty block with the statement on its own line, indented one level deeper than the closing brace.
+     */
+    private static J.Block withStatement(J.Block body, Statement statement, @Nullable J.Try _try) {
+        String closing = indentation(body.getEnd());
+        if (closing == null) {
+            closing = _try == null ? null : indentation(_try.getPrefix());
+            body = body.withEnd(Space.format("\n" + (closing == null ? "" : closing)));
+        }
+        if (closing == null) {
+            closing = "";
+        }
+        statement = statement.withPrefix(Space.format("\n" + closing + indentUnit(closing, _try)));
+        return body.withStatements(Collections.singletonList(statement));
+    }
+
+    /**
+     * The indentation of the statements of the try block relative to its closing brace, or four spaces.
+     */
+    private static String indentUnit(String closing, @Nullable J.Try _try) {
+        if (_try != null && !_try.getBody().getStatements().isEmpty()) {
+            String statement = indentation(_try.getBody().getStatements().get(0).getPrefix());
+            String end = indentation(_try.getBody().getEnd());
+            if (statement != null && end != null && statement.length() > end.length() && statement.startsWith(end)) {
+                return statement.substring(end.length());
+            }
+        }
+        return closing.startsWith("\t") ? "\t" : "    ";
+    }
+
+    /**
+     * The whitespace after the last line break, or `null` when there is no line break.
+     */
+    @Nullable
+    private static String indentation(Space space) {
+        String whitespace = space.getWhitespace();
+        int lineBreak = whitespace.lastIndexOf('\n');
+        return lineBreak < 0 ? null : whitespace.substring(lineBreak + 1);
+    }
 }
@@ -0,0 +1,402 @@
+package nl.kevinvandervlist.rewrite;
+
+import lombok.EqualsAndHashCode;
+import org.openrewrite.Cursor;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Option;
+import org.openrewrite.Recipe;
+import org.openrewrite.Tree;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.MethodMatcher;
+import org.openrewrite.java.search.UsesType;
+import org.openrewrite.java.tree.*;
+import org.openrewrite.marker.Markers;
+
+import java.beans.ConstructorProperties;
+import java.util.*;
+
+/**
+ * Pass the values of a concatenated SLF4J log message as arguments of a format, so the message is only built when its
+ * level is enabled: `log.debug("x=" + x + " y=" + y)` becomes `log.debug("x={} y={}", x, y)`.
+ * <p>
+ * An exception argument stays in the last position, where SLF4J expects it. Calls that already pass arguments are left
+ * alone, as are messages that would format differently: literals with `{}` or a backslash in front of a value, and
+ * values that are exceptions, arrays or `null`, which SLF4J formats in its own way.
+ * <p>
+ * Optionally, `trace` and `debug` statements of which an argument is computed by more than a variable or literal are
+ * wrapped in an `isTraceEnabled()` or `isDebugEnabled()` guard, so the argument is only computed when it is logged. The
+ * guard passes the marker of the call, if any, and statements in the `then` part of such a guard on the same logger are
+ * left alone.
+ */
+@EqualsAndHashCode(callSuper = true)
+public class ParameterizedLogging extends Recipe {
+    private static final String LOGGER = "org.slf4j.Logger";
+
+    private static final MethodMatcher LOG = new MethodMatcher(LOGGER + " *(..)");
+    private static final Set<String> LEVELS = new HashSet<>(Arrays.asList("trace", "debug", "info", "warn", "error"));
+    private static final Set<String> GUARDED_LEVELS = new HashSet<>(Arrays.asList("trace", "debug"));
+
+    private static final JavaType.FullyQualified OBJECT = JavaType.Class.build("java.lang.Object");
+    private static final JavaType.FullyQualified MARKER = JavaType.Class.build("org.slf4j.Marker");
+
+    @Option(displayName = "Guard expensive arguments",
+            description = "Wrap `trace` and `debug` statements of which an argument is computed by more than a variable " +
+                    "or literal in an `isTraceEnabled()` or `isDebugEnabled()` guard. Defaults to false.",
+            example = "true",
+            required = false)
+    @Nullable
+    private final Boolean guardExpensiveArguments;
+
+    public ParameterizedLogging() {
+        this(null);
+    }
+
+    @ConstructorProperties({"guardExpensiveArguments"})
+    public ParameterizedLogging(@Nullable Boolean guardExpensiveArguments) {
+        this.guardExpensiveArguments = guardExpensiveArguments;
+    }
+
+    private boolean guardExpensiveArguments() {
+        return Boolean.TRUE.equals(guardExpensiveArguments);
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Use parameterized logging";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Pass the values of SLF4J log messages as arguments, instead of concatenating them into the message " +
+                "even when the level is disabled.";
+    }
+
+    @Nullable
+    @Override
+    protected TreeVisitor<?, ExecutionContext> getSingleSourceApplicableTest() {
+        return RecipePhaseEvent.profile(getName(), RecipePhaseEvent.Phase.APPLICABILITY, new UsesType<>(LOGGER));
+    }
+
+    @Override
+    protected TreeVisitor<?, ExecutionContext> getVisitor() {
+        return RecipePhaseEvent.profile(getName(), RecipePhaseEvent.Phase.REWRITE, new JavaVisitor<ExecutionContext>() {
+            @Override
+            public J visitMethodInvocation(J.MethodInvocation method, ExecutionContext executionContext) {
+                J j = super.visitMethodInvocation(method, executionContext);
+                if (!(j instanceof J.MethodInvocation) || !isLogCall((J.MethodInvocation) j)) {
+                    return j;
+                }
+                J.MethodInvocation m = (J.MethodInvocation) j;
+                J.MethodInvocation parameterized = parameterize(m);
+                if (parameterized != m) {
+                    ChangeEvents.record(ParameterizedLogging.this.getName(), getCursor(), parameterized);
+                }
+                return parameterized;
+            }
+
+            @Override
+            public J visitBlock(J.Block block, ExecutionContext executionContext) {
+                J.Block b = (J.Block) super.visitBlock(block, executionContext);
+                if (!guardExpensiveArguments()) {
+                    return b;
+                }
+                List<Statement> statements = new ArrayList<>(b.getStatements());
+                boolean guarded = false;
+                for (int i = 0; i < statements.size(); i++) {
+                    Statement statement = statements.get(i);
+                    if (statement instanceof J.MethodInvocation && needsGuard((J.MethodInvocation) statement) &&
+                            !isGuarded((J.MethodInvocation) statement, getCursor())) {
+                        J.If guard = guard((J.MethodInvocation) statement, b);
+                        if (guard != null) {
+                            statements.set(i, guard);
+                            guarded = true;
+                            ChangeEvents.record(ParameterizedLogging.this.getName(), getCursor(), guard);
+                        }
+                    }
+                }
+                return guarded ? b.withStatements(statements) : b;
+            }
+        });
+    }
+
+    private static boolean isLogCall(J.MethodInvocation m) {
+        return LEVELS.contains(m.getName().getSimpleName()) && LOG.matches(m);
+    }
+
+    /**
+     * The call with the concatenated message replaced by a format and its arguments, or the call itself when it can
+     * not be rewritten without changing the message.
+     */
+    private static J.MethodInvocation parameterize(J.MethodInvocation m) {
+        List<Expression> arguments = arguments(m);
+        int message = !arguments.isEmpty() && isMarker(arguments.get(0)) ? 1 : 0;
+        if (arguments.size() <= message || !isConcatenation(arguments.get(message))) {
+            return m;
+        }
+        List<Expression> rest = arguments.subList(message + 1, arguments.size());
+        if (rest.size() > 1 || rest.size() == 1 && !isThrowable(rest.get(0).getType())) {
+            return m;
+        }
+
+        List<Expression> operands = new ArrayList<>();
+        flatten(arguments.get(message), operands);
+        J.Literal firstLiteral = null;
+        StringBuilder value = new StringBuilder();
+        StringBuilder valueSource = new StringBuilder();
+        List<Expression> parameters = new ArrayList<>();
+        for (Expression operand : operands) {
+            if (operand instanceof J.Literal && ((J.Literal) operand).getValue() instanceof String) {
+                J.Literal literal = (J.Literal) operand;
+                String source = literal.getValueSource();
+                if (source == null || source.length() < 2) {
+                    return m;
+                }
+                firstLiteral = firstLiteral == null ? literal : firstLiteral;
+                value.append((String) literal.getValue());
+                valueSource.append(source, 1, source.length() - 1);
+            } else {
+                JavaType type = operand.getType();
+                if (type == null || type == JavaType.Primitive.Null || type instanceof JavaType.Array || isThrowable(type)) {
+                    return m;
+                }
+                value.append("{}");
+                valueSource.append("{}");
+                parameters.add(operand.withPrefix(Space.format(" ")));
+            }
+        }
+        if (firstLiteral == null || parameters.isEmpty() || !hasPlaceholders(value.toString(), parameters.size())) {
+            return m;
+        }
+
+        List<Expression> parameterized = new ArrayList<>(arguments.subList(0, message));
+        parameterized.add(firstLiteral
+                .withId(Tree.randomId())
+                .withPrefix(arguments.get(message).getPrefix())
+                .withValue(value.toString())
+                .withValueSource("\"" + valueSource + "\""));
+        parameterized.addAll(parameters);
+        for (Expression exception : rest) {
+            parameterized.add(exception.withPrefix(Space.format(" ")));
+        }
+        return m.withArguments(parameterized).withType(logType(m, message == 1, parameters.size() + rest.size()));
+    }
+
+    /**
+     * The operands of a `String` concatenation, from left to right. Operands that are not concatenations themselves,
+     * such as `(a + b)` of two numbers, are kept as a whole.
+     */
+    private static void flatten(Expression expression, List<Expression> operands) {
+        if (expression instanceof J.Parentheses && isConcatenation(((J.Parentheses<?>) expression).getTree())) {
+            flatten((Expression) ((J.Parentheses<?>) expression).getTree(), operands);
+        } else if (isConcatenation(expression)) {
+            J.Binary binary = (J.Binary) expression;
+            flatten(binary.getLeft(), operands);
+            flatten(binary.getRight(), operands);
+        } else {
+            operands.add(expression);
+        }
+    }
+
+    private static boolean isConcatenation(Object tree) {
+        return tree instanceof J.Binary &&
+                ((J.Binary) tree).getOperator() == J.Binary.Type.Addition &&
+                JavaType.Primitive.String.equals(((J.Binary) tree).getType());
+    }
+
+    /**
+     * Whether SLF4J fills exactly the placeholders of the values: the format has no other `{}`, and no placeholder is
+     * escaped by a backslash.
+     */
+    private static boolean hasPlaceholders(String format, int parameters) {
+        int placeholders = 0;
+        for (int i = format.indexOf("{}"); i >= 0; i = format.indexOf("{}", i + 2)) {
+            if (i > 0 && format.charAt(i - 1) == '\\') {
+                return false;
+            }
+            placeholders++;
+        }
+        return placeholders == parameters;
+    }
+
+    private static boolean needsGuard(J.MethodInvocation m) {
+        if (!GUARDED_LEVELS.contains(m.getName().getSimpleName()) || !LOG.matches(m) || !isCheap(m.getSelect())) {
+            return false;
+        }
+        for (Expression argument : arguments(m)) {
+            if (!isCheap(argument)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCheap(@Nullable Expression expression) {
+        return expression instanceof J.Identifier || expression instanceof J.Literal ||
+                expression instanceof J.FieldAccess && isCheap(((J.FieldAccess) expression).getTarget());
+    }
+
+    /**
+     * `if (log.isDebugEnabled()) { log.debug(...); }`, or `if (log.isDebugEnabled(marker))` for a call with a marker, on
+     * the lines of the statement, or `null` when the statement does not start on a line of its own or its marker is
+     * computed.
+     */
+    @Nullable
+    private static J.If guard(J.MethodInvocation statement, J.Block block) {
+        String indentation = indentation(statement.getPrefix());
+        Expression marker = marker(statement);
+        if (indentation == null || statement.getSelect() == null || marker != null && !isCheap(marker)) {
+            return null;
+        }
+        String check = levelCheck(statement);
+        Expression logger = statement.getSelect().withId(Tree.randomId());
+        J.MethodInvocation condition = marker == null ?
+                MethodInvocations.invocation(logger.withPrefix(Space.EMPTY), check,
+                        MethodInvocations.methodType(loggerType(statement), check, JavaType.Primitive.Boolean,
+                                Collections.emptyList(), Collections.emptyList()),
+                        Collections.emptyList()) :
+                MethodInvocations.invocation(logger.withPrefix(Space.EMPTY), check,
+                        MethodInvocations.methodType(loggerType(statement), check, JavaType.Primitive.Boolean,
+                                Collections.singletonList(MARKER), Collections.singletonList("marker")),
+                        Collections.singletonList(marker.withId(Tree.randomId()).withPrefix(Space.EMPTY)));
+        J.Block then = new J.Block(Tree.randomId(), Space.format(" "), Markers.EMPTY, JRightPadded.build(false),
+                Collections.singletonList(JRightPadded.build(
+                        (Statement) statement.withPrefix(Space.format("\n" + indentation + indentUnit(indentation, block))))),
+                Space.format("\n" + indentation));
+        return new J.If(Tree.randomId(), statement.getPrefix(), Markers.EMPTY,
+                new J.ControlParentheses<>(Tree.randomId(), Space.format(" "), Markers.EMPTY, JRightPadded.build((Expression) condition)),
+                JRightPadded.build((Statement) then),
+                null);
+    }
+
+    /**
+     * Whether the statement is in the `then` part of an `if` that checks whether its level is enabled, within the
+     * same method or lambda.
+     */
+    private static boolean isGuarded(J.MethodInvocation statement, Cursor cursor) {
+        Object child = cursor.getValue();
+        for (Cursor parent = cursor.getParent(); parent != null; parent = parent.getParent()) {
+            Object value = parent.getValue();
+            if (value instanceof J.MethodDeclaration || value instanceof J.Lambda || value instanceof J.ClassDeclaration) {
+                return false;
+            }
+            if (!(value instanceof J)) {
+                continue;
+            }
+            if (value instanceof J.If && child instanceof J &&
+                    ((J.If) value).getThenPart().getId().equals(((J) child).getId()) &&
+                    isLevelCheck(((J.If) value).getIfCondition().getTree(), statement)) {
+                return true;
+            }
+            child = value;
+        }
+        return false;
+    }
+
+    /**
+     * Whether the condition is `log.isDebugEnabled()`, or `log.isDebugEnabled(marker)` with the marker of the call, on
+     * the logger and for the level of the call.
+     */
+    private static boolean isLevelCheck(Expression condition, J.MethodInvocation statement) {
+        if (!(condition instanceof J.MethodInvocation)) {
+            return false;
+        }
+        J.MethodInvocation check = (J.MethodInvocation) condition;
+        if (!LOG.matches(check) || !levelCheck(statement).equals(check.getName().getSimpleName()) ||
+                check.getSelect() == null || statement.getSelect() == null ||
+                !check.getSelect().printTrimmed().equals(statement.getSelect().printTrimmed())) {
+            return false;
+        }
+        List<Expression> arguments = arguments(check);
+        Expression marker = marker(statement);
+        return arguments.isEmpty() ||
+                arguments.size() == 1 && marker != null && arguments.get(0).printTrimmed().equals(marker.printTrimmed());
+    }
+
+    /**
+     * The name of the method that checks whether the level of the call is enabled, such as `isDebugEnabled`.
+     */
+    private static String levelCheck(J.MethodInvocation m) {
+        String level = m.getName().getSimpleName();
+        return "is" + Character.toUpperCase(level.charAt(0)) + level.substring(1) + "Enabled";
+    }
+
+    /**
+     * The indentation of the statements of the block relative to its closing brace, or four spaces.
+     */
+    private static String indentUnit(String statement, J.Block block) {
+        String end = indentation(block.getEnd());
+        if (end != null && statement.length() > end.length() && statement.startsWith(end)) {
+            return statement.substring(end.length());
+        }
+        return statement.startsWith("\t") ? "\t" : "    ";
+    }
+
+    /**
+     * The whitespace after the last line break, or `null` when there is no line break.
+     */
+    @Nullable
+    private static String indentation(Space space) {
+        String whitespace = space.getWhitespace();
+        int lineBreak = whitespace.lastIndexOf('\n');
+        return lineBreak < 0 ? null : whitespace.substring(lineBreak + 1);
+    }
+
+    /**
+     * The type of the SLF4J method that takes the format and the provided number of arguments.
+     */
+    private static JavaType.Method logType(J.MethodInvocation m, boolean withMarker, int arguments) {
+        List<JavaType> parameterTypes = new ArrayList<>();
+        List<String> parameterNames = new ArrayList<>();
+        if (withMarker) {
+            parameterTypes.add(MARKER);
+            parameterNames.add("marker");
+        }
+        parameterTypes.add(JavaType.Primitive.String);
+        parameterNames.add("format");
+        if (arguments <= 2) {
+            for (int i = 1; i <= arguments; i++) {
+                parameterTypes.add(OBJECT);
+                parameterNames.add(arguments == 1 ? "arg" : "arg" + i);
+            }
+        } else {
+            parameterTypes.add(new JavaType.Array(OBJECT));
+            parameterNames.add("arguments");
+        }
+        return MethodInvocations.methodType(loggerType(m), m.getName().getSimpleName(), JavaType.Primitive.Void, parameterTypes, parameterNames);
+    }
+
+    private static JavaType.FullyQualified loggerType(J.MethodInvocation m) {
+        JavaType.Method type = m.getType();
+        return type == null || type.getDeclaringType() == null ? JavaType.Class.build(LOGGER) : type.getDeclaringType();
+    }
+
+    private static List<Expression> arguments(J.MethodInvocation m) {
+        List<Expression> arguments = m.getArguments();
+        if (arguments.size() == 1 && arguments.get(0) instanceof J.Empty) {
+            return Collections.emptyList();
+        }
+        return arguments;
+    }
+
+    @Nullable
+    private static Expression marker(J.MethodInvocation m) {
+        List<Expression> arguments = arguments(m);
+        return !arguments.isEmpty() && isMarker(arguments.get(0)) ? arguments.get(0) : null;
+    }
+
+    private static boolean isMarker(Expression expression) {
+        JavaType.FullyQualified type = TypeUtils.asFullyQualified(expression.getType());
+        return type != null && MARKER.getFullyQualifiedName().equals(type.getFullyQualifiedName());
+    }
+
+    private static boolean isThrowable(@Nullable JavaType type) {
+        for (JavaType.FullyQualified t = TypeUtils.asFullyQualified(type); t != null; t = t.getSupertype()) {
+            if ("java.lang.Throwable".equals(t.getFullyQualifiedName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
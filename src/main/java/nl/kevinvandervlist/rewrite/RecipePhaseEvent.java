@@ -0,0 +1,122 @@
+package nl.kevinvandervlist.rewrite;
+
+import jdk.jfr.*;
+import org.openrewrite.Cursor;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.SourceFile;
+import org.openrewrite.Tree;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.tree.J;
+
+/**
+ * Java Flight Recorder event for a phase of a recipe on a single source file. When the event is not enabled in a
+ * recording, beginning and ending it only costs the allocation of the event and a check of {@link #isEnabled()}.
+ */
+@Name(RecipePhaseEvent.NAME)
+@Label("Recipe phase")
+@Category({"OpenRewrite", "Recipes"})
+@StackTrace(false)
+public class RecipePhaseEvent extends Event {
+    public static final String NAME = "nl.kevinvandervlist.rewrite.RecipePhase";
+
+    public enum Phase {
+        APPLICABILITY,
+        ANALYSIS,
+        TEMPLATE,
+        AFTER_VISIT,
+        REWRITE
+    }
+
+    @Label("Recipe")
+    String recipe;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Source path")
+    String sourcePath;
+
+    @Label("Nodes")
+    @Description("Number of tree nodes processed by the phase, zero when the phase does not count them")
+    int nodes;
+
+    public static RecipePhaseEvent begin(String recipe, Phase phase) {
+        RecipePhaseEvent event = new RecipePhaseEvent();
+        if (event.isEnabled()) {
+            event.recipe = recipe;
+            event.phase = phase.name();
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * End the phase, finding the source path from the cursor only when the event is committed.
+     */
+    public void end(Cursor cursor, int nodes) {
+        if (isEnabled()) {
+            end();
+            if (shouldCommit()) {
+                J.CompilationUnit cu = cursor.firstEnclosing(J.CompilationUnit.class);
+                commit(cu == null ? "" : cu.getSourcePath().toString(), nodes);
+            }
+        }
+    }
+
+    public void end(@Nullable Tree tree, int nodes) {
+        if (isEnabled()) {
+            end();
+            if (shouldCommit()) {
+                commit(tree instanceof SourceFile ? ((SourceFile) tree).getSourcePath().toString() : "", nodes);
+            }
+        }
+    }
+
+    private void commit(String sourcePath, int nodes) {
+        this.sourcePath = sourcePath;
+        this.nodes = nodes;
+        commit();
+    }
+
+    /**
+     * End the phase, counting the nodes of the tree only when the event is committed.
+     */
+    public void endCountingNodes(@Nullable Tree tree) {
+        if (isEnabled()) {
+            end();
+            if (shouldCommit()) {
+                int[] nodes = {0};
+                new CountNodes().visit(tree, nodes);
+                commit(tree instanceof SourceFile ? ((SourceFile) tree).getSourcePath().toString() : "", nodes[0]);
+            }
+        }
+    }
+
+    /**
+     * Wrap a visitor, so each visit of a whole source file is recorded as the given phase, with the number of nodes
+     * of the source file as the nodes it processed.
+     */
+    public static JavaVisitor<ExecutionContext> profile(String recipe, Phase phase, TreeVisitor<?, ExecutionContext> visitor) {
+        return new JavaVisitor<ExecutionContext>() {
+            @Override
+            public J visit(@Nullable Tree tree, ExecutionContext executionContext) {
+                RecipePhaseEvent event = begin(recipe, phase);
+                J visited = (J) visitor.visit(tree, executionContext);
+                event.endCountingNodes(tree);
+                return visited;
+            }
+        };
+    }
+
+    private static class CountNodes extends JavaVisitor<int[]> {
+        @Override
+        public J visit(@Nullable Tree tree, int[] nodes) {
+            if (tree != null) {
+                nodes[0]++;
+            }
+            return super.visit(tree, nodes);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package nl.kevinvandervlist.rewrite;
+
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.MethodMatcher;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaType;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Renames any number of methods, declarations and call sites alike, in a single pass.
+ * Renames are indexed by the current simple name of the method, so only the matchers of methods
+ * with the same name are tried for a declaration or invocation.
+ * Renames that only apply to one compilation unit can be kept apart from the renames shared by all of them.
+ */
+class RenameMethods extends JavaVisitor<ExecutionContext> {
+    private final Map<String, List<Rename>> renamesBySimpleName = new HashMap<>();
+
+    private final String recipeName;
+
+    // Number of declarations, invocations and method references renamed.
+    private int renamed = 0;
+
+    @Nullable
+    private final RenameMethods shared;
+
+    /**
+     * @param recipeName name of the recipe the renames are made for.
+     */
+    RenameMethods(String recipeName) {
+        this(recipeName, null);
+    }
+
+    /**
+     * @param recipeName name of the recipe the renames are made for.
+     * @param shared renames that are applied in addition to the renames of this instance.
+     */
+    RenameMethods(String recipeName, @Nullable RenameMethods shared) {
+        this.recipeName = recipeName;
+        this.shared = shared;
+    }
+
+    /**
+     * @param methodPattern pattern of the method to rename, see {@link MethodMatcher}.
+     * @param simpleName current name of the method.
+     * @param newName name to rename the method to.
+     */
+    void add(String methodPattern, String simpleName, String newName) {
+        renamesBySimpleName.computeIfAbsent(simpleName, k -> new ArrayList<>(1))
+                .add(new Rename(new MethodMatcher(methodPattern, true), newName));
+    }
+
+    int renamed() {
+        return renamed;
+    }
+
+    boolean isEmpty() {
+        return isEmptyLocally() && (shared == null || shared.isEmpty());
+    }
+
+    /**
+     * Whether this instance has no renames of its own, disregarding the shared renames.
+     */
+    boolean isEmptyLocally() {
+        return renamesBySimpleName.isEmpty();
+    }
+
+    @Nullable
+    private String newName(String simpleName, Predicate<MethodMatcher> matches) {
+        List<Rename> renames = renamesBySimpleName.get(simpleName);
+        if (renames != null) {
+            for (Rename rename : renames) {
+                if (matches.test(rename.matcher)) {
+                    return rename.newName;
+                }
+            }
+        }
+        return shared == null ? null : shared.newName(simpleName, matches);
+    }
+
+    @Override
+    public J visitMethodDeclaration(J.MethodDeclaration method, ExecutionContext executionContext) {
+        J.MethodDeclaration m = (J.MethodDeclaration) super.visitMethodDeclaration(method, executionContext);
+        J.ClassDeclaration classDecl = getCursor().firstEnclosing(J.ClassDeclaration.class);
+        if (classDecl == null) {
+            return m;
+        }
+        String newName = newName(method.getSimpleName(), matcher -> matcher.matches(method, classDecl));
+        if (newName != null) {
+            renamed++;
+            m = m.withName(m.getName().withSimpleName(newName));
+            if (m.getType() != null) {
+                m = m.withType(m.getType().withName(newName));
+            }
+            ChangeEvents.record(recipeName, getCursor(), "MethodDeclaration", method.getSimpleName() + " -> " + newName);
+        }
+        return m;
+    }
+
+    @Override
+    public J visitMethodInvocation(J.MethodInvocation method, ExecutionContext executionContext) {
+        J.MethodInvocation m = (J.MethodInvocation) super.visitMethodInvocation(method, executionContext);
+        String newName = newName(method.getSimpleName(), matcher -> matcher.matches(method));
+        if (newName != null) {
+            renamed++;
+            m = m.withName(m.getName().withSimpleName(newName));
+            if (m.getType() != null) {
+                m = m.withType(m.getType().withName(newName));
+            }
+        }
+        return m;
+    }
+
+    @Override
+    public J visitMemberReference(J.MemberReference memberRef, ExecutionContext executionContext) {
+        J.MemberReference m = (J.MemberReference) super.visitMemberReference(memberRef, executionContext);
+        if (!(memberRef.getReferenceType() instanceof JavaType.Method)) {
+            return m;
+        }
+        JavaType.Method referenceType = (JavaType.Method) memberRef.getReferenceType();
+        String newName = newName(memberRef.getReference().getSimpleName(), matcher -> matcher.matches(referenceType));
+        if (newName != null) {
+            renamed++;
+            m = m.withReference(m.getReference().withSimpleName(newName));
+        }
+        return m;
+    }
+
+    private static class Rename {
+        private final MethodMatcher matcher;
+        private final String newName;
+
+        private Rename(MethodMatcher matcher, String newName) {
+            this.matcher = matcher;
+            this.newName = newName;
+        }
+    }
+}
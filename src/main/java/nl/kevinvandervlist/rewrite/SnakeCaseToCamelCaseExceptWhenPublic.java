@@ -2,12 +2,16 @@ package nl.kevinvandervlist.rewrite;
 
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.Recipe;
-import org.openrewrite.TreeVisitor;
+import org.openrewrite.SourceFile;
+import org.openrewrite.Tree;
+import org.openrewrite.internal.ListUtils;
 import org.openrewrite.internal.NameCaseConvention;
-import org.openrewrite.java.ChangeMethodName;
-import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.JavaIsoVisitor;
 import org.openrewrite.java.MethodMatcher;
 import org.openrewrite.java.tree.J;
+import org.openrewrite.marker.SearchResult;
+
+import java.util.*;
 
 public class SnakeCaseToCamelCaseExceptWhenPublic extends Recipe {
     @Override
@@ -17,22 +21,186 @@ public class SnakeCaseToCamelCaseExceptWhenPublic extends Recipe {
 
     @Override
     public String getDescription() {
-        return "Apply snake case to camel case transformation unless the method is public and therefore can have unknown consumers";
+        return "Apply snake case to camel case transformation unless the method is public and therefore can have unknown consumers. " +
+                "Methods are not renamed when a method with the camel case name already exists in the type hierarchy.";
     }
 
     @Override
-    protected TreeVisitor<?, ExecutionContext> getVisitor() {
-        return new JavaVisitor<ExecutionContext>() {
-            @Override
-            public J visitMethodDeclaration(J.MethodDeclaration method, ExecutionContext executionContext) {
-                boolean isNotPublic = ! method.hasModifier(J.Modifier.Type.Public);
-                boolean isSnakeCase = NameCaseConvention.matches(NameCaseConvention.LOWER_UNDERSCORE, method.getSimpleName());
-                if(isNotPublic && isSnakeCase) {
-                    String cc = NameCaseConvention.format(NameCaseConvention.LOWER_CAMEL, method.getSimpleName());
-                    doNext(new ChangeMethodName(MethodMatcher.methodPattern(method), cc, true));
+    protected List<SourceFile> visit(List<SourceFile> before, ExecutionContext ctx) {
+        // Collect all renames first, so declarations and call sites in all files are renamed in a single pass.
+        MethodNameIndex index = new MethodNameIndex();
+        FindMethodsToRename findMethodsToRename = new FindMethodsToRename();
+        for (SourceFile sourceFile : before) {
+            if (sourceFile instanceof J.CompilationUnit) {
+                RecipePhaseEvent analysis = RecipePhaseEvent.begin(getName(), RecipePhaseEvent.Phase.ANALYSIS);
+                int candidates = findMethodsToRename.candidates.size();
+                findMethodsToRename.sourceFileId = sourceFile.getId();
+                findMethodsToRename.visit(sourceFile, index);
+                analysis.end(sourceFile, findMethodsToRename.candidates.size() - candidates);
+            }
+        }
+
+        // Private methods can only be called from their own compilation unit, so their renames are kept per file.
+        RenameMethods shared = new RenameMethods(getName());
+        Map<UUID, RenameMethods> renamesPerFile = new HashMap<>();
+        Map<UUID, Map<UUID, String>> skippedPerFile = new HashMap<>();
+        for (List<Candidate> group : overloadsAndOverrides(findMethodsToRename.candidates, index)) {
+            // The names a group renames to are only added to the index once the whole group is checked, so the
+            // members of a group are not mistaken for existing methods by each other.
+            Set<Candidate> conflicting = new HashSet<>();
+            for (Candidate candidate : group) {
+                boolean conflicts = candidate.isPrivate ?
+                        index.hasMethod(candidate.declaringType, candidate.newName) :
+                        index.hasMethodInHierarchy(candidate.declaringType, candidate.newName);
+                if (conflicts) {
+                    conflicting.add(candidate);
+                }
+            }
+            if (!conflicting.isEmpty()) {
+                for (Candidate candidate : group) {
+                    skippedPerFile.computeIfAbsent(candidate.sourceFileId, k -> new HashMap<>())
+                            .put(candidate.methodId, conflicting.contains(candidate) ?
+                                    "Not renamed to " + candidate.newName + ", a method with that name already exists" :
+                                    "Not renamed to " + candidate.newName + ", a method it overloads or overrides can not be renamed");
+                }
+                continue;
+            }
+            for (Candidate candidate : group) {
+                RenameMethods renames = candidate.isPrivate ?
+                        renamesPerFile.computeIfAbsent(candidate.sourceFileId, k -> new RenameMethods(getName(), shared)) :
+                        shared;
+                renames.add(candidate.methodPattern, candidate.simpleName, candidate.newName);
+            }
+            for (Candidate candidate : group) {
+                index.addMethod(candidate.declaringType, candidate.newName);
+            }
+        }
+
+        if (shared.isEmpty() && renamesPerFile.isEmpty() && skippedPerFile.isEmpty()) {
+            return before;
+        }
+        return ListUtils.map(before, sourceFile -> {
+            if (!(sourceFile instanceof J.CompilationUnit)) {
+                return sourceFile;
+            }
+            SourceFile after = sourceFile;
+            RenameMethods renames = renamesPerFile.getOrDefault(sourceFile.getId(), shared);
+            if (!renames.isEmpty()) {
+                RecipePhaseEvent rewrite = RecipePhaseEvent.begin(getName(), RecipePhaseEvent.Phase.REWRITE);
+                int renamed = renames.renamed();
+                after = (SourceFile) renames.visit(after, ctx);
+                rewrite.end(sourceFile, renames.renamed() - renamed);
+            }
+            Map<UUID, String> skipped = skippedPerFile.get(sourceFile.getId());
+            if (skipped != null) {
+                after = (SourceFile) new MarkSkippedRenames(skipped).visit(after, ctx);
+            }
+            return after;
+        });
+    }
+
+    /**
+     * Groups the candidates that have to be renamed together: those with the same name in the same type, which
+     * overload each other, or in types that extend one another, which may override each other. Renaming only some of
+     * them would split an overload set or break an override.
+     */
+    private static List<List<Candidate>> overloadsAndOverrides(List<Candidate> candidates, MethodNameIndex index) {
+        List<List<Candidate>> groups = new ArrayList<>();
+        Map<String, List<List<Candidate>>> groupsByName = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            List<List<Candidate>> named = groupsByName.computeIfAbsent(candidate.simpleName, k -> new ArrayList<>());
+            List<Candidate> merged = null;
+            for (Iterator<List<Candidate>> it = named.iterator(); it.hasNext(); ) {
+                List<Candidate> group = it.next();
+                if (!isRelated(candidate, group, index)) {
+                    continue;
+                }
+                if (merged == null) {
+                    merged = group;
+                } else {
+                    // The candidate relates two groups that were unrelated so far, e.g. a type and its two supertypes.
+                    merged.addAll(group);
+                    groups.removeIf(g -> g == group);
+                    it.remove();
                 }
-                return super.visitMethodDeclaration(method, executionContext);
             }
-        };
+            if (merged == null) {
+                merged = new ArrayList<>();
+                named.add(merged);
+                groups.add(merged);
+            }
+            merged.add(candidate);
+        }
+        return groups;
+    }
+
+    private static boolean isRelated(Candidate candidate, List<Candidate> group, MethodNameIndex index) {
+        for (Candidate member : group) {
+            if (index.isSubtypeOf(candidate.declaringType, member.declaringType) ||
+                    index.isSubtypeOf(member.declaringType, candidate.declaringType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Candidate {
+        private final UUID sourceFileId;
+        private final UUID methodId;
+        private final String methodPattern;
+        private final String declaringType;
+        private final String simpleName;
+        private final String newName;
+        private final boolean isPrivate;
+
+        private Candidate(UUID sourceFileId, UUID methodId, String methodPattern, String declaringType,
+                          String simpleName, String newName, boolean isPrivate) {
+            this.sourceFileId = sourceFileId;
+            this.methodId = methodId;
+            this.methodPattern = methodPattern;
+            this.declaringType = declaringType;
+            this.simpleName = simpleName;
+            this.newName = newName;
+            this.isPrivate = isPrivate;
+        }
+    }
+
+    /**
+     * Indexes the method names of all types and collects the methods to rename, in the same pass.
+     */
+    private static class FindMethodsToRename extends MethodNameIndex.Indexer {
+        private final List<Candidate> candidates = new ArrayList<>();
+        private UUID sourceFileId;
+
+        @Override
+        public J.MethodDeclaration visitMethodDeclaration(J.MethodDeclaration method, MethodNameIndex index) {
+            boolean isNotPublic = ! method.hasModifier(J.Modifier.Type.Public);
+            boolean isSnakeCase = NameCaseConvention.matches(NameCaseConvention.LOWER_UNDERSCORE, method.getSimpleName());
+            String declaringType = declaringTypeOf(method);
+            if(isNotPublic && isSnakeCase && declaringType != null) {
+                String cc = NameCaseConvention.format(NameCaseConvention.LOWER_CAMEL, method.getSimpleName());
+                candidates.add(new Candidate(sourceFileId, method.getId(), MethodMatcher.methodPattern(method), declaringType,
+                        method.getSimpleName(), cc, method.hasModifier(J.Modifier.Type.Private)));
+            }
+            return super.visitMethodDeclaration(method, index);
+        }
+    }
+
+    private static class MarkSkippedRenames extends JavaIsoVisitor<ExecutionContext> {
+        private final Map<UUID, String> reasons;
+
+        private MarkSkippedRenames(Map<UUID, String> reasons) {
+            this.reasons = reasons;
+        }
+
+        @Override
+        public J.MethodDeclaration visitMethodDeclaration(J.MethodDeclaration method, ExecutionContext executionContext) {
+            J.MethodDeclaration m = super.visitMethodDeclaration(method, executionContext);
+            String reason = reasons.get(method.getId());
+            if (reason != null && !m.getMarkers().findFirst(SearchResult.class).isPresent()) {
+                m = m.withMarkers(m.getMarkers().addIfAbsent(new SearchResult(Tree.randomId(), reason)));
+            }
+            return m;
+        }
     }
 }
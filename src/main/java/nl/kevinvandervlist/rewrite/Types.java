@@ -0,0 +1,41 @@
+package nl.kevinvandervlist.rewrite;
+
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.java.tree.TypeUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Type checks shared by recipes that only rewrite calls on, or arguments of, a family of types.
+ */
+public final class Types {
+    private Types() {
+    }
+
+    /**
+     * Whether the candidate is the fully qualified type, or extends or implements it, directly or through its supertypes.
+     */
+    public static boolean isSubtypeOf(String type, @Nullable JavaType candidate) {
+        return isSubtypeOf(type, TypeUtils.asFullyQualified(candidate), new HashSet<>());
+    }
+
+    private static boolean isSubtypeOf(String type, @Nullable JavaType.FullyQualified candidate, Set<String> visited) {
+        if (candidate == null || !visited.add(candidate.getFullyQualifiedName())) {
+            return false;
+        }
+        if (type.equals(candidate.getFullyQualifiedName())) {
+            return true;
+        }
+        if (isSubtypeOf(type, candidate.getSupertype(), visited)) {
+            return true;
+        }
+        for (JavaType.FullyQualified anInterface : candidate.getInterfaces()) {
+            if (isSubtypeOf(type, anInterface, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import nl.kevinvandervlist.rewrite.ChangeEvents;
+import nl.kevinvandervlist.rewrite.JavaTemplateCache;
+import nl.kevinvandervlist.rewrite.RecipePhaseEvent;
+import nl.kevinvandervlist.rewrite.Types;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Tree;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaIsoVisitor;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.tree.Expression;
+import org.openrewrite.java.tree.J;
+import org.openrewrite.java.tree.JavaType;
+import org.openrewrite.java.tree.TypeUtils;
+import org.openrewrite.marker.SearchResult;
+
+import java.util.*;
+
+/**
+ * A table of collection factory methods and the standard library expressions that replace them.
+ * <p>
+ * Factories are indexed by declaring type and simple name, so finding the factory of an invocation costs two map
+ * lookups and a check of the few overloads with that name, however many factories the table has. The template of
+ * each factory is built once, and shared through {@link JavaTemplateCache}.
+ */
+class CollectionFactories {
+    private final Map<String, Map<String, List<Factory>>> factories = new HashMap<>();
+    private final Set<String> packages = new HashSet<>();
+
+    /**
+     * Add a factory.
+     *
+     * @param pattern     declaring type, name and argument types of the factory, as in
+     *                    `com.google.common.collect.Lists newArrayList(java.util.Collection)`. An argument matches a
+     *                    type when it is assignable to it.
+     * @param replacement template of the replacement, with an `#{any()}` parameter per argument.
+     * @param imports     types used by the replacement.
+     */
+    CollectionFactories add(String pattern, String replacement, String... imports) {
+        return add(new Factory(pattern, replacement, false, imports));
+    }
+
+    /**
+     * Add a factory of which the replacement embeds its arguments in an expression, such as the capacity computed
+     * from an expected size. Only invocations with simple arguments are replaced, so no parentheses are needed.
+     */
+    CollectionFactories addWithSimpleArguments(String pattern, String replacement, String... imports) {
+        return add(new Factory(pattern, replacement, true, imports));
+    }
+
+    private CollectionFactories add(Factory factory) {
+        packages.add(factory.declaringType.substring(0, factory.declaringType.lastIndexOf('.')));
+        factories.computeIfAbsent(factory.declaringType, t -> new HashMap<>())
+                .computeIfAbsent(factory.name, n -> new ArrayList<>(2))
+                .add(factory);
+        return this;
+    }
+
+    /**
+     * Marks compilation units that refer to a declaring type of the table. Most are found from the package and imports
+     * alone; only the others are visited, for invocations of a declaring type that is referred to by its fully
+     * qualified name.
+     */
+    JavaIsoVisitor<ExecutionContext> applicableTest() {
+        return new JavaIsoVisitor<ExecutionContext>() {
+            @Override
+            public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu, ExecutionContext executionContext) {
+                return refersToDeclaringType(cu) || invokesDeclaringType(cu) ?
+                        cu.withMarkers(cu.getMarkers().addIfAbsent(new SearchResult(Tree.randomId(), null))) :
+                        cu;
+            }
+        };
+    }
+
+    private boolean invokesDeclaringType(J.CompilationUnit cu) {
+        boolean[] found = {false};
+        new JavaIsoVisitor<boolean[]>() {
+            @Override
+            public J visit(@Nullable Tree tree, boolean[] found) {
+                return found[0] ? (J) tree : super.visit(tree, found);
+            }
+
+            @Override
+            public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method, boolean[] found) {
+                JavaType.Method type = method.getType();
+                found[0] |= type != null && type.getDeclaringType() != null &&
+                        factories.containsKey(type.getDeclaringType().getFullyQualifiedName());
+                return super.visitMethodInvocation(method, found);
+            }
+        }.visit(cu, found);
+        return found[0];
+    }
+
+    private boolean refersToDeclaringType(J.CompilationUnit cu) {
+        if (cu.getPackageDeclaration() != null && packages.contains(name(cu.getPackageDeclaration().getExpression()))) {
+            return true;
+        }
+        for (J.Import anImport : cu.getImports()) {
+            J.FieldAccess qualid = anImport.getQualid();
+            String target = name(qualid.getTarget());
+            if (anImport.isStatic() ? factories.containsKey(target) :
+                    "*".equals(qualid.getSimpleName()) ? packages.contains(target) :
+                            factories.containsKey(target + "." + qualid.getSimpleName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String name(Expression expression) {
+        if (expression instanceof J.FieldAccess) {
+            J.FieldAccess fieldAccess = (J.FieldAccess) expression;
+            return name(fieldAccess.getTarget()) + "." + fieldAccess.getSimpleName();
+        }
+        return expression instanceof J.Identifier ? ((J.Identifier) expression).getSimpleName() : "";
+    }
+
+    @Nullable
+    Factory find(J.MethodInvocation method) {
+        JavaType.Method type = method.getType();
+        if (type == null || type.getDeclaringType() == null) {
+            return null;
+        }
+        Map<String, List<Factory>> byName = factories.get(type.getDeclaringType().getFullyQualifiedName());
+        if (byName == null) {
+            return null;
+        }
+        List<Factory> overloads = byName.get(method.getName().getSimpleName());
+        if (overloads == null) {
+            return null;
+        }
+        List<Expression> arguments = arguments(method);
+        for (Factory factory : overloads) {
+            if (factory.accepts(arguments)) {
+                return factory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replace every invocation of a factory in the table.
+     */
+    JavaVisitor<ExecutionContext> visitor(String recipeName) {
+        return new JavaVisitor<ExecutionContext>() {
+            @Override
+            public J visitMethodInvocation(J.MethodInvocation method, ExecutionContext executionContext) {
+                Factory factory = find(method);
+                if (factory == null) {
+                    return super.visitMethodInvocation(method, executionContext);
+                }
+                maybeRemoveImport(factory.declaringType);
+                for (String anImport : factory.imports) {
+                    maybeAddImport(anImport);
+                }
+                RecipePhaseEvent template = RecipePhaseEvent.begin(recipeName, RecipePhaseEvent.Phase.TEMPLATE);
+                J j = JavaTemplateCache.apply(factory.template, getCursor(), method, method.getCoordinates().replace(),
+                        arguments(method).toArray());
+                template.end(getCursor(), 1);
+                ChangeEvents.record(recipeName, getCursor(), j);
+                return j;
+            }
+        };
+    }
+
+    private static List<Expression> arguments(J.MethodInvocation method) {
+        List<Expression> arguments = method.getArguments();
+        if (arguments.size() == 1 && arguments.get(0) instanceof J.Empty) {
+            return Collections.emptyList();
+        }
+        return arguments;
+    }
+
+    static final class Factory {
+        private final String declaringType;
+        private final String name;
+        private final String[] argumentTypes;
+        private final boolean simpleArguments;
+        private final JavaTemplateCache.Key template;
+        private final String[] imports;
+
+        private Factory(String pattern, String replacement, boolean simpleArguments, String[] imports) {
+            int space = pattern.indexOf(' ');
+            int open = pattern.indexOf('(', space);
+            this.declaringType = pattern.substring(0, space);
+            this.name = pattern.substring(space + 1, open);
+            String arguments = pattern.substring(open + 1, pattern.length() - 1).trim();
+            this.argumentTypes = arguments.isEmpty() ? new String[0] : arguments.split("\\s*,\\s*");
+            this.simpleArguments = simpleArguments;
+            this.template = JavaTemplateCache.key(replacement, imports);
+            this.imports = imports.clone();
+        }
+
+        private boolean accepts(List<Expression> arguments) {
+            if (arguments.size() != argumentTypes.length) {
+                return false;
+            }
+            for (int i = 0; i < argumentTypes.length; i++) {
+                Expression argument = arguments.get(i);
+                if (simpleArguments && !(argument instanceof J.Identifier || argument instanceof J.Literal ||
+                        argument instanceof J.FieldAccess || argument instanceof J.MethodInvocation)) {
+                    return false;
+                }
+                if (!isAssignableTo(argumentTypes[i], argument.getType())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static boolean isAssignableTo(String type, @Nullable JavaType argumentType) {
+        if (argumentType instanceof JavaType.Primitive) {
+            // Only int arguments are used by factories, which accept the narrower integral types as well.
+            switch (((JavaType.Primitive) argumentType).getKeyword()) {
+                case "int":
+                case "short":
+                case "byte":
+                case "char":
+                    return "int".equals(type);
+                default:
+                    return false;
+            }
+        }
+        JavaType.FullyQualified fullyQualified = TypeUtils.asFullyQualified(argumentType);
+        if ("int".equals(type)) {
+            return fullyQualified != null && "java.lang.Integer".equals(fullyQualified.getFullyQualifiedName());
+        }
+        return Types.isSubtypeOf(type, fullyQualified);
+    }
+}
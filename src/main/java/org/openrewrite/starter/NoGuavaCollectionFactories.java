@@ -0,0 +1,81 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter;
+
+import nl.kevinvandervlist.rewrite.RecipePhaseEvent;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.TreeVisitor;
+
+public class NoGuavaCollectionFactories extends Recipe {
+    private static final String LISTS = "com.google.common.collect.Lists";
+    private static final String SETS = "com.google.common.collect.Sets";
+    private static final String MAPS = "com.google.common.collect.Maps";
+
+    // Guava sizes hash based collections so that the expected number of elements fits without rehashing.
+    private static final CollectionFactories FACTORIES = new CollectionFactories()
+            .add(LISTS + " newArrayList()", "new ArrayList<>()", "java.util.ArrayList")
+            .add(LISTS + " newArrayList(java.util.Collection)", "new ArrayList<>(#{any(java.util.Collection)})", "java.util.ArrayList")
+            .add(LISTS + " newArrayListWithCapacity(int)", "new ArrayList<>(#{any(int)})", "java.util.ArrayList")
+            .add(LISTS + " newArrayListWithExpectedSize(int)", "new ArrayList<>(#{any(int)})", "java.util.ArrayList")
+            .add(LISTS + " newLinkedList()", "new LinkedList<>()", "java.util.LinkedList")
+            .add(LISTS + " newLinkedList(java.util.Collection)", "new LinkedList<>(#{any(java.util.Collection)})", "java.util.LinkedList")
+            .add(LISTS + " newCopyOnWriteArrayList()", "new CopyOnWriteArrayList<>()", "java.util.concurrent.CopyOnWriteArrayList")
+            .add(LISTS + " newCopyOnWriteArrayList(java.util.Collection)", "new CopyOnWriteArrayList<>(#{any(java.util.Collection)})", "java.util.concurrent.CopyOnWriteArrayList")
+            .add(SETS + " newHashSet()", "new HashSet<>()", "java.util.HashSet")
+            .add(SETS + " newHashSet(java.util.Collection)", "new HashSet<>(#{any(java.util.Collection)})", "java.util.HashSet")
+            .addWithSimpleArguments(SETS + " newHashSetWithExpectedSize(int)", "new HashSet<>((int) (#{any(int)} / 0.75f) + 1)", "java.util.HashSet")
+            .add(SETS + " newLinkedHashSet()", "new LinkedHashSet<>()", "java.util.LinkedHashSet")
+            .add(SETS + " newLinkedHashSet(java.util.Collection)", "new LinkedHashSet<>(#{any(java.util.Collection)})", "java.util.LinkedHashSet")
+            .addWithSimpleArguments(SETS + " newLinkedHashSetWithExpectedSize(int)", "new LinkedHashSet<>((int) (#{any(int)} / 0.75f) + 1)", "java.util.LinkedHashSet")
+            .add(SETS + " newTreeSet()", "new TreeSet<>()", "java.util.TreeSet")
+            .add(SETS + " newTreeSet(java.util.Comparator)", "new TreeSet<>(#{any(java.util.Comparator)})", "java.util.TreeSet")
+            .add(SETS + " newConcurrentHashSet()", "ConcurrentHashMap.newKeySet()", "java.util.concurrent.ConcurrentHashMap")
+            .add(SETS + " newCopyOnWriteArraySet()", "new CopyOnWriteArraySet<>()", "java.util.concurrent.CopyOnWriteArraySet")
+            .add(MAPS + " newHashMap()", "new HashMap<>()", "java.util.HashMap")
+            .add(MAPS + " newHashMap(java.util.Map)", "new HashMap<>(#{any(java.util.Map)})", "java.util.HashMap")
+            .addWithSimpleArguments(MAPS + " newHashMapWithExpectedSize(int)", "new HashMap<>((int) (#{any(int)} / 0.75f) + 1)", "java.util.HashMap")
+            .add(MAPS + " newLinkedHashMap()", "new LinkedHashMap<>()", "java.util.LinkedHashMap")
+            .add(MAPS + " newLinkedHashMap(java.util.Map)", "new LinkedHashMap<>(#{any(java.util.Map)})", "java.util.LinkedHashMap")
+            .addWithSimpleArguments(MAPS + " newLinkedHashMapWithExpectedSize(int)", "new LinkedHashMap<>((int) (#{any(int)} / 0.75f) + 1)", "java.util.LinkedHashMap")
+            .add(MAPS + " newTreeMap()", "new TreeMap<>()", "java.util.TreeMap")
+            .add(MAPS + " newTreeMap(java.util.SortedMap)", "new TreeMap<>(#{any(java.util.SortedMap)})", "java.util.TreeMap")
+            .add(MAPS + " newTreeMap(java.util.Comparator)", "new TreeMap<>(#{any(java.util.Comparator)})", "java.util.TreeMap")
+            .add(MAPS + " newConcurrentMap()", "new ConcurrentHashMap<>()", "java.util.concurrent.ConcurrentHashMap")
+            .add(MAPS + " newIdentityHashMap()", "new IdentityHashMap<>()", "java.util.IdentityHashMap")
+            .add(MAPS + " newEnumMap(java.lang.Class)", "new EnumMap<>(#{any(java.lang.Class)})", "java.util.EnumMap")
+            .add(MAPS + " newEnumMap(java.util.Map)", "new EnumMap<>(#{any(java.util.Map)})", "java.util.EnumMap");
+
+    @Override
+    public String getDisplayName() {
+        return "Use Java collection constructors instead of Guava factories";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Replace the collection factories of Guava's `Lists`, `Sets` and `Maps` by the constructors of the Java standard library.";
+    }
+
+    @Override
+    protected TreeVisitor<?, ExecutionContext> getSingleSourceApplicableTest() {
+        return RecipePhaseEvent.profile(getName(), RecipePhaseEvent.Phase.APPLICABILITY, FACTORIES.applicableTest());
+    }
+
+    @Override
+    protected TreeVisitor<?, ExecutionContext> getVisitor() {
+        return FACTORIES.visitor(getName());
+    }
+}
@@ -15,20 +15,19 @@
  */
 package org.openrewrite.starter;
 
+import nl.kevinvandervlist.rewrite.RecipePhaseEvent;
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.Recipe;
 import org.openrewrite.TreeVisitor;
-import org.openrewrite.java.JavaIsoVisitor;
-import org.openrewrite.java.JavaTemplate;
-import org.openrewrite.java.JavaVisitor;
-import org.openrewrite.java.MethodMatcher;
-import org.openrewrite.java.search.UsesMethod;
-import org.openrewrite.java.tree.J;
 
 public class NoGuavaListsNewArrayList extends Recipe {
-    private static final MethodMatcher NEW_ARRAY_LIST = new MethodMatcher("com.google.common.collect.Lists newArrayList()");
-    private static final MethodMatcher NEW_ARRAY_LIST_ITERABLE = new MethodMatcher("com.google.common.collect.Lists newArrayList(java.lang.Iterable)");
-    private static final MethodMatcher NEW_ARRAY_LIST_CAPACITY = new MethodMatcher("com.google.common.collect.Lists newArrayListWithCapacity(int)");
+    private static final CollectionFactories FACTORIES = new CollectionFactories()
+            .add("com.google.common.collect.Lists newArrayList()",
+                    "new ArrayList<>()", "java.util.ArrayList")
+            .add("com.google.common.collect.Lists newArrayList(java.util.Collection)",
+                    "new ArrayList<>(#{any(java.util.Collection)})", "java.util.ArrayList")
+            .add("com.google.common.collect.Lists newArrayListWithCapacity(int)",
+                    "new ArrayList<>(#{any(int)})", "java.util.ArrayList");
 
     @Override
     public String getDisplayName() {
@@ -41,52 +40,12 @@ public class NoGuavaListsNewArrayList extends Recipe {
     }
 
     @Override
-    protected TreeVisitor<?, ExecutionContext> getApplicableTest() {
-        return new JavaIsoVisitor<ExecutionContext>() {
-            @Override
-            public J.CompilationUnit visitCompilationUnit(J.CompilationUnit cu, ExecutionContext executionContext) {
-                doAfterVisit(new UsesMethod<>(NEW_ARRAY_LIST));
-                doAfterVisit(new UsesMethod<>(NEW_ARRAY_LIST_ITERABLE));
-                doAfterVisit(new UsesMethod<>(NEW_ARRAY_LIST_CAPACITY));
-                return cu;
-            }
-        };
+    protected TreeVisitor<?, ExecutionContext> getSingleSourceApplicableTest() {
+        return RecipePhaseEvent.profile(getName(), RecipePhaseEvent.Phase.APPLICABILITY, FACTORIES.applicableTest());
     }
 
     @Override
     protected TreeVisitor<?, ExecutionContext> getVisitor() {
-        return new JavaVisitor<ExecutionContext>() {
-            private final JavaTemplate newArrayList = JavaTemplate.builder(this::getCursor, "new ArrayList<>()")
-                    .imports("java.util.ArrayList")
-                    .build();
-
-            private final JavaTemplate newArrayListIterable = JavaTemplate.builder(this::getCursor, "new ArrayList<>(#{any(java.lang.Iterable)})")
-                    .imports("java.util.ArrayList")
-                    .build();
-
-            private final JavaTemplate newArrayListCapacity = JavaTemplate.builder(this::getCursor, "new ArrayList<>(#{any(int)})")
-                    .imports("java.util.ArrayList")
-                    .build();
-
-            @Override
-            public J visitMethodInvocation(J.MethodInvocation method, ExecutionContext executionContext) {
-                if (NEW_ARRAY_LIST.matches(method)) {
-                    maybeRemoveImport("com.google.common.collect.Lists");
-                    maybeAddImport("java.util.ArrayList");
-                    return method.withTemplate(newArrayList, method.getCoordinates().replace());
-                } else if (NEW_ARRAY_LIST_ITERABLE.matches(method)) {
-                    maybeRemoveImport("com.google.common.collect.Lists");
-                    maybeAddImport("java.util.ArrayList");
-                    return method.withTemplate(newArrayListIterable, method.getCoordinates().replace(),
-                            method.getArguments().get(0));
-                } else if (NEW_ARRAY_LIST_CAPACITY.matches(method)) {
-                    maybeRemoveImport("com.google.common.collect.Lists");
-                    maybeAddImport("java.util.ArrayList");
-                    return method.withTemplate(newArrayListCapacity, method.getCoordinates().replace(),
-                            method.getArguments().get(0));
-                }
-                return super.visitMethodInvocation(method, executionContext);
-            }
-        };
+        return FACTORIES.visitor(getName());
     }
 }
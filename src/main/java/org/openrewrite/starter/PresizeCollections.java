@@ -0,0 +1,281 @@
+package org.openrewrite.starter;
+
+import nl.kevinvandervlist.rewrite.ChangeEvents;
+import nl.kevinvandervlist.rewrite.JavaTemplateCache;
+import nl.kevinvandervlist.rewrite.RecipePhaseEvent;
+import nl.kevinvandervlist.rewrite.Types;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaIsoVisitor;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.tree.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Presize an `ArrayList`, `HashMap` or `HashSet` that is created empty and then filled by the loop right after it,
+ * from the number of iterations of that loop:
+ * <pre>
+ * List&lt;String&gt; names = new ArrayList&lt;&gt;(people.size());
+ * for (Person person : people) {
+ *     names.add(person.getName());
+ * }
+ * </pre>
+ * The loop iterates over an array, a collection, or the entries, keys or values of a map, or counts from zero to the
+ * length of an array, the size of a collection or a literal. Every iteration adds to the collection unconditionally,
+ * and the loop has no `break` or `continue`, so the collection is never presized much larger than it gets. Hash based
+ * collections are presized so the elements fit without exceeding the default load factor of 0.75, like Guava's
+ * `newHashMapWithExpectedSize`.
+ */
+public class PresizeCollections extends Recipe {
+    private static final Map<String, JavaTemplateCache.Key> PRESIZED = new HashMap<>();
+
+    static {
+        PRESIZED.put("java.util.ArrayList", JavaTemplateCache.key("new ArrayList<>(#{})", "java.util.ArrayList"));
+        for (String hashed : new String[]{"HashMap", "HashSet", "LinkedHashMap", "LinkedHashSet"}) {
+            PRESIZED.put("java.util." + hashed, JavaTemplateCache.key("new " + hashed + "<>((int) (#{} / 0.75f) + 1)", "java.util." + hashed));
+        }
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Presize collections that are filled in a loop";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Create an ArrayList, HashMap or HashSet that is filled by a loop with room for all elements, instead of growing it while adding.";
+    }
+
+    @Override
+    protected TreeVisitor<?, ExecutionContext> getVisitor() {
+        return RecipePhaseEvent.profile(getName(), RecipePhaseEvent.Phase.REWRITE, new JavaVisitor<ExecutionContext>() {
+            @Override
+            public J visitBlock(J.Block block, ExecutionContext executionContext) {
+                J.Block b = (J.Block) super.visitBlock(block, executionContext);
+                List<Statement> statements = b.getStatements();
+                for (int i = 0; i + 1 < statements.size(); i++) {
+                    if (!(statements.get(i) instanceof J.VariableDeclarations)) {
+                        continue;
+                    }
+                    J.VariableDeclarations declarations = (J.VariableDeclarations) statements.get(i);
+                    if (declarations.getVariables().size() != 1 ||
+                            !(declarations.getVariables().get(0).getInitializer() instanceof J.NewClass)) {
+                        continue;
+                    }
+                    J.NewClass newClass = (J.NewClass) declarations.getVariables().get(0).getInitializer();
+                    JavaType.FullyQualified type = TypeUtils.asFullyQualified(newClass.getType());
+                    if (type == null || !PRESIZED.containsKey(type.getFullyQualifiedName()) || newClass.getBody() != null ||
+                            !hasNoArguments(newClass)) {
+                        continue;
+                    }
+                    String size = fills(statements.get(i + 1), declarations.getVariables().get(0).getSimpleName());
+                    if (size == null) {
+                        continue;
+                    }
+
+                    RecipePhaseEvent template = RecipePhaseEvent.begin(PresizeCollections.this.getName(), RecipePhaseEvent.Phase.TEMPLATE);
+                    b = JavaTemplateCache.apply(PRESIZED.get(type.getFullyQualifiedName()),
+                            getCursor(), b, newClass.getCoordinates().replace(), size);
+                    template.end(getCursor(), 1);
+                    statements = b.getStatements();
+                    ChangeEvents.record(PresizeCollections.this.getName(), getCursor(), statements.get(i));
+                }
+                return b;
+            }
+        });
+    }
+
+    private static boolean hasNoArguments(J.NewClass newClass) {
+        List<Expression> arguments = newClass.getArguments();
+        return arguments == null || arguments.isEmpty() || arguments.size() == 1 && arguments.get(0) instanceof J.Empty;
+    }
+
+    /**
+     * The number of elements a loop adds to a collection, as source code, or `null` when the statement is not such a
+     * loop.
+     */
+    @Nullable
+    private static String fills(Statement statement, String collection) {
+        String size;
+        Statement body;
+        if (statement instanceof J.ForEachLoop) {
+            J.ForEachLoop forEachLoop = (J.ForEachLoop) statement;
+            size = sizeOf(forEachLoop.getControl().getIterable());
+            body = forEachLoop.getBody();
+        } else if (statement instanceof J.ForLoop) {
+            J.ForLoop forLoop = (J.ForLoop) statement;
+            size = iterations(forLoop.getControl());
+            body = forLoop.getBody();
+        } else {
+            return null;
+        }
+        return size != null && addsOnEveryIteration(body, collection) ? size : null;
+    }
+
+    /**
+     * The size of the array, collection or map view that a for-each loop iterates over.
+     */
+    @Nullable
+    private static String sizeOf(Expression iterable) {
+        if (iterable instanceof J.MethodInvocation) {
+            J.MethodInvocation view = (J.MethodInvocation) iterable;
+            String name = view.getName().getSimpleName();
+            boolean mapView = "entrySet".equals(name) || "keySet".equals(name) || "values".equals(name);
+            String map = view.getSelect() == null ? null : simpleExpression(view.getSelect());
+            return mapView && map != null && hasNoArguments(view) && Types.isSubtypeOf("java.util.Map", view.getSelect().getType()) ?
+                    map + ".size()" : null;
+        }
+        String source = simpleExpression(iterable);
+        if (source == null) {
+            return null;
+        }
+        if (iterable.getType() instanceof JavaType.Array) {
+            return source + ".length";
+        }
+        return Types.isSubtypeOf("java.util.Collection", iterable.getType()) ? source + ".size()" : null;
+    }
+
+    /**
+     * The bound of a loop `for (int i = 0; i < bound; i++)`.
+     */
+    @Nullable
+    private static String iterations(J.ForLoop.Control control) {
+        if (control.getInit().size() != 1 || !(control.getInit().get(0) instanceof J.VariableDeclarations)) {
+            return null;
+        }
+        J.VariableDeclarations init = (J.VariableDeclarations) control.getInit().get(0);
+        if (init.getVariables().size() != 1 || !isZero(init.getVariables().get(0).getInitializer())) {
+            return null;
+        }
+        String counter = init.getVariables().get(0).getSimpleName();
+        if (!(control.getCondition() instanceof J.Binary)) {
+            return null;
+        }
+        J.Binary condition = (J.Binary) control.getCondition();
+        if (condition.getOperator() != J.Binary.Type.LessThan || !isIdentifier(condition.getLeft(), counter) ||
+                control.getUpdate().size() != 1 || !isIncrement(control.getUpdate().get(0), counter)) {
+            return null;
+        }
+        // A bound that may be negative would make the constructor throw, where the loop does not iterate at all.
+        Expression bound = condition.getRight();
+        boolean nonNegative = bound instanceof J.Literal ||
+                bound instanceof J.FieldAccess && "length".equals(((J.FieldAccess) bound).getSimpleName()) &&
+                        ((J.FieldAccess) bound).getTarget().getType() instanceof JavaType.Array ||
+                bound instanceof J.MethodInvocation && Types.isSubtypeOf("java.util.Collection", ((J.MethodInvocation) bound).getSelect() == null ?
+                        null : ((J.MethodInvocation) bound).getSelect().getType());
+        return nonNegative ? simpleExpression(bound) : null;
+    }
+
+    private static boolean isZero(@Nullable Expression expression) {
+        return expression instanceof J.Literal && Integer.valueOf(0).equals(((J.Literal) expression).getValue());
+    }
+
+    private static boolean isIncrement(Statement update, String counter) {
+        if (update instanceof J.Unary) {
+            J.Unary unary = (J.Unary) update;
+            return (unary.getOperator() == J.Unary.Type.PostIncrement || unary.getOperator() == J.Unary.Type.PreIncrement) &&
+                    isIdentifier(unary.getExpression(), counter);
+        }
+        if (update instanceof J.AssignmentOperation) {
+            J.AssignmentOperation assignOp = (J.AssignmentOperation) update;
+            return assignOp.getOperator() == J.AssignmentOperation.Type.Addition &&
+                    isIdentifier(assignOp.getVariable(), counter) &&
+                    assignOp.getAssignment() instanceof J.Literal &&
+                    Integer.valueOf(1).equals(((J.Literal) assignOp.getAssignment()).getValue());
+        }
+        return false;
+    }
+
+    /**
+     * Whether the body of a loop adds to the collection with a statement of its own, and never skips it.
+     */
+    private static boolean addsOnEveryIteration(Statement body, String collection) {
+        boolean adds = false;
+        if (body instanceof J.Block) {
+            for (Statement statement : ((J.Block) body).getStatements()) {
+                adds |= isAdd(statement, collection);
+            }
+        } else {
+            adds = isAdd(body, collection);
+        }
+        return adds && !leavesIteration(body);
+    }
+
+    private static boolean isAdd(Statement statement, String collection) {
+        if (!(statement instanceof J.MethodInvocation)) {
+            return false;
+        }
+        J.MethodInvocation method = (J.MethodInvocation) statement;
+        String name = method.getName().getSimpleName();
+        return ("add".equals(name) && method.getArguments().size() == 1 || "put".equals(name) && method.getArguments().size() == 2) &&
+                isIdentifier(method.getSelect(), collection);
+    }
+
+    private static boolean leavesIteration(Statement body) {
+        boolean[] leaves = new boolean[1];
+        new JavaIsoVisitor<boolean[]>() {
+            @Override
+            public J.Break visitBreak(J.Break breakStatement, boolean[] leaves) {
+                leaves[0] = true;
+                return breakStatement;
+            }
+
+            @Override
+            public J.Continue visitContinue(J.Continue continueStatement, boolean[] leaves) {
+                leaves[0] = true;
+                return continueStatement;
+            }
+
+            @Override
+            public J.Return visitReturn(J.Return _return, boolean[] leaves) {
+                leaves[0] = true;
+                return _return;
+            }
+
+            @Override
+            public J.Lambda visitLambda(J.Lambda lambda, boolean[] leaves) {
+                // A return in a lambda only leaves the lambda.
+                return lambda;
+            }
+        }.visit(body, leaves);
+        return leaves[0];
+    }
+
+    /**
+     * Source code of an expression that can be evaluated once more without side effects, or `null`.
+     */
+    @Nullable
+    private static String simpleExpression(@Nullable Expression expression) {
+        if (expression instanceof J.Identifier) {
+            return ((J.Identifier) expression).getSimpleName();
+        }
+        if (expression instanceof J.FieldAccess) {
+            String target = simpleExpression(((J.FieldAccess) expression).getTarget());
+            return target == null ? null : target + "." + ((J.FieldAccess) expression).getSimpleName();
+        }
+        if (expression instanceof J.Literal && ((J.Literal) expression).getValue() instanceof Integer) {
+            return ((J.Literal) expression).getValue().toString();
+        }
+        if (expression instanceof J.MethodInvocation) {
+            J.MethodInvocation method = (J.MethodInvocation) expression;
+            String select = simpleExpression(method.getSelect());
+            return select != null && "size".equals(method.getName().getSimpleName()) && hasNoArguments(method) ?
+                    select + ".size()" : null;
+        }
+        return null;
+    }
+
+    private static boolean hasNoArguments(J.MethodInvocation method) {
+        List<Expression> arguments = method.getArguments();
+        return arguments.isEmpty() || arguments.size() == 1 && arguments.get(0) instanceof J.Empty;
+    }
+
+    private static boolean isIdentifier(@Nullable Expression expression, String name) {
+        return expression instanceof J.Identifier && name.equals(((J.Identifier) expression).getSimpleName());
+    }
+}
@@ -0,0 +1,537 @@
+package org.openrewrite.starter;
+
+import nl.kevinvandervlist.rewrite.ChangeEvents;
+import nl.kevinvandervlist.rewrite.RecipePhaseEvent;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaIsoVisitor;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.MethodMatcher;
+import org.openrewrite.java.tree.*;
+
+import java.util.*;
+
+/**
+ * Replace collections that lock on every call by ones that do not, where the locking protects nothing, or by a
+ * concurrent map, where it does.
+ * <p>
+ * A local `Vector`, `Hashtable` or `StringBuffer` that never escapes the thread that creates it becomes an
+ * `ArrayList`, `HashMap` or `StringBuilder`, and a local `Collections.synchronizedList` or `synchronizedMap` is
+ * replaced by the collection it wraps. A local escapes when it is used for anything but calling its methods, iterating
+ * over it or concatenating it to a string: when it is passed to or returned from a method, assigned, captured by a
+ * lambda or class, used as a monitor, or when a view of it is taken, such as an iterator or `subList`.
+ * <p>
+ * A private `Hashtable` field, or a private `Collections.synchronizedMap(new HashMap<>())` field, that is shared
+ * between threads becomes a `ConcurrentHashMap`, unless it is used as a monitor, assigned after its declaration, or
+ * escapes the class, where callers may lock on it.
+ * `ConcurrentHashMap` rejects `null` keys and values like `Hashtable` does, so a synchronized `HashMap` is only
+ * replaced when its methods are called with arguments that can not be `null`. Shared `Vector`, `StringBuffer` and
+ * `synchronizedList` fields are left alone, as no unsynchronized list or builder is safe to share.
+ */
+public class ReplaceSynchronizedCollections extends Recipe {
+    private static final String HASHTABLE = "java.util.Hashtable";
+    private static final String HASH_MAP = "java.util.HashMap";
+    private static final String MAP = "java.util.Map";
+    private static final String COLLECTIONS = "java.util.Collections";
+    private static final JavaType.FullyQualified CONCURRENT_HASH_MAP = JavaType.Class.build("java.util.concurrent.ConcurrentHashMap");
+
+    private static final MethodMatcher SYNCHRONIZED_LIST = new MethodMatcher("java.util.Collections synchronizedList(java.util.List)");
+    private static final MethodMatcher SYNCHRONIZED_MAP = new MethodMatcher("java.util.Collections synchronizedMap(java.util.Map)");
+
+    // Methods that return a view of a collection, through which the collection escapes.
+    private static final Set<String> VIEWS = new HashSet<>(Arrays.asList("elements", "entrySet", "iterator", "keySet",
+            "keys", "listIterator", "parallelStream", "spliterator", "stream", "subList", "values"));
+
+    private static final Map<String, Legacy> LEGACY = new HashMap<>();
+
+    static {
+        add(new Legacy("java.util.Vector", "java.util.ArrayList", Arrays.asList("java.util.List", "java.util.Collection", "java.lang.Iterable"),
+                "addElement", "capacity", "copyInto", "elementAt", "elements", "firstElement", "insertElementAt",
+                "lastElement", "removeAllElements", "removeElement", "removeElementAt", "setElementAt", "setSize",
+                "indexOf/2", "lastIndexOf/2"));
+        add(new Legacy(HASHTABLE, HASH_MAP, Collections.singletonList(MAP), "contains", "elements", "keys"));
+        add(new Legacy("java.lang.StringBuffer", "java.lang.StringBuilder", Collections.singletonList("java.lang.CharSequence")));
+    }
+
+    private static void add(Legacy legacy) {
+        LEGACY.put(legacy.type, legacy);
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Replace synchronized collections";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Use ArrayList, HashMap and StringBuilder instead of Vector, Hashtable, StringBuffer and synchronized " +
+                "wrappers for locals that are not shared between threads, and ConcurrentHashMap for maps that are.";
+    }
+
+    @Override
+    protected TreeVisitor<?, ExecutionContext> getVisitor() {
+        return RecipePhaseEvent.profile(getName(), RecipePhaseEvent.Phase.REWRITE, new JavaVisitor<ExecutionContext>() {
+            // Bodies of classes, of which the variable declarations are fields rather than locals.
+            private final Set<UUID> classBodies = new HashSet<>();
+
+            @Override
+            public J visitClassDeclaration(J.ClassDeclaration classDecl, ExecutionContext executionContext) {
+                classBodies.add(classDecl.getBody().getId());
+                J.ClassDeclaration c = (J.ClassDeclaration) super.visitClassDeclaration(classDecl, executionContext);
+                List<Statement> statements = c.getBody().getStatements();
+                List<Statement> updated = null;
+                for (int i = 0; i < statements.size(); i++) {
+                    if (!(statements.get(i) instanceof J.VariableDeclarations)) {
+                        continue;
+                    }
+                    J.VariableDeclarations field = concurrentField((J.VariableDeclarations) statements.get(i), c.getBody());
+                    if (field != null) {
+                        updated = updated == null ? new ArrayList<>(statements) : updated;
+                        updated.set(i, field);
+                        ChangeEvents.record(ReplaceSynchronizedCollections.this.getName(), getCursor(), field);
+                    }
+                }
+                return updated == null ? c : c.withBody(c.getBody().withStatements(updated));
+            }
+
+            @Override
+            public J visitNewClass(J.NewClass newClass, ExecutionContext executionContext) {
+                if (newClass.getBody() != null) {
+                    classBodies.add(newClass.getBody().getId());
+                }
+                return super.visitNewClass(newClass, executionContext);
+            }
+
+            @Override
+            public J visitBlock(J.Block block, ExecutionContext executionContext) {
+                J.Block b = (J.Block) super.visitBlock(block, executionContext);
+                if (classBodies.contains(block.getId())) {
+                    return b;
+                }
+                List<Statement> statements = b.getStatements();
+                List<Statement> updated = null;
+                for (int i = 0; i < statements.size(); i++) {
+                    if (!(statements.get(i) instanceof J.VariableDeclarations)) {
+                        continue;
+                    }
+                    J.VariableDeclarations local = unsynchronizedLocal((J.VariableDeclarations) statements.get(i),
+                            statements.subList(i + 1, statements.size()));
+                    if (local != null) {
+                        updated = updated == null ? new ArrayList<>(statements) : updated;
+                        updated.set(i, local);
+                        ChangeEvents.record(ReplaceSynchronizedCollections.this.getName(), getCursor(), local);
+                    }
+                }
+                return updated == null ? b : b.withStatements(updated);
+            }
+
+            /**
+             * The declaration with an unsynchronized collection, or `null` when the local escapes or has no
+             * synchronized initializer. The scope of a local is the rest of the block that declares it.
+             */
+            @Nullable
+            private J.VariableDeclarations unsynchronizedLocal(J.VariableDeclarations declarations, List<Statement> scope) {
+                J.VariableDeclarations.NamedVariable variable = singleVariable(declarations);
+                if (variable == null) {
+                    return null;
+                }
+                Expression initializer = variable.getInitializer();
+                String declaredType = fullyQualifiedName(declarations.getType());
+                Legacy legacy = initializer instanceof J.NewClass ? LEGACY.get(fullyQualifiedName(initializer.getType())) : null;
+                Expression wrapped = null;
+                if (legacy != null) {
+                    if (!legacy.accepts((J.NewClass) initializer) ||
+                            !legacy.type.equals(declaredType) && !legacy.interfaces.contains(declaredType)) {
+                        return null;
+                    }
+                } else if (initializer instanceof J.MethodInvocation &&
+                        (SYNCHRONIZED_LIST.matches((J.MethodInvocation) initializer) || SYNCHRONIZED_MAP.matches((J.MethodInvocation) initializer))) {
+                    wrapped = ((J.MethodInvocation) initializer).getArguments().get(0);
+                } else {
+                    return null;
+                }
+
+                Uses uses = new Uses(variable, legacy, false);
+                for (Statement statement : scope) {
+                    uses.inStatementPosition(statement);
+                    uses.visit(statement, 0);
+                }
+                if (uses.escapes()) {
+                    return null;
+                }
+
+                if (wrapped != null) {
+                    maybeRemoveImport(COLLECTIONS);
+                    return withInitializer(declarations, wrapped.withPrefix(initializer.getPrefix()));
+                }
+                J.NewClass newClass = (J.NewClass) initializer;
+                TypeTree clazz = rename(newClass.getClazz(), legacy.replacement);
+                if (clazz == null) {
+                    return null;
+                }
+                J.VariableDeclarations updated = withInitializer(declarations, newClass.withClazz(clazz).withType(legacy.replacement));
+                if (legacy.type.equals(declaredType)) {
+                    TypeTree typeExpression = rename(declarations.getTypeExpression(), legacy.replacement);
+                    if (typeExpression == null) {
+                        return null;
+                    }
+                    updated = updated.withTypeExpression(typeExpression);
+                }
+                maybeRemoveImport(legacy.type);
+                if (!legacy.replacement.getFullyQualifiedName().startsWith("java.lang.")) {
+                    maybeAddImport(legacy.replacement.getFullyQualifiedName());
+                }
+                return updated;
+            }
+
+            /**
+             * The declaration with a `ConcurrentHashMap`, or `null` when the field is not a private synchronized map
+             * that can be replaced.
+             */
+            @Nullable
+            private J.VariableDeclarations concurrentField(J.VariableDeclarations declarations, J.Block classBody) {
+                J.VariableDeclarations.NamedVariable variable = singleVariable(declarations);
+                if (variable == null || !declarations.hasModifier(J.Modifier.Type.Private)) {
+                    return null;
+                }
+                Expression initializer = variable.getInitializer();
+                String declaredType = fullyQualifiedName(declarations.getType());
+                J.NewClass map;
+                String replaced;
+                boolean renameDeclaredType = false;
+                boolean synchronizedMap = false;
+                if (initializer instanceof J.NewClass && HASHTABLE.equals(fullyQualifiedName(initializer.getType())) &&
+                        LEGACY.get(HASHTABLE).accepts((J.NewClass) initializer) && (MAP.equals(declaredType) || HASHTABLE.equals(declaredType))) {
+                    map = (J.NewClass) initializer;
+                    replaced = HASHTABLE;
+                    renameDeclaredType = HASHTABLE.equals(declaredType);
+                } else if (initializer instanceof J.MethodInvocation && SYNCHRONIZED_MAP.matches((J.MethodInvocation) initializer) &&
+                        isNewHashMap(((J.MethodInvocation) initializer).getArguments().get(0)) && MAP.equals(declaredType)) {
+                    map = ((J.NewClass) ((J.MethodInvocation) initializer).getArguments().get(0)).withPrefix(initializer.getPrefix());
+                    replaced = HASH_MAP;
+                    synchronizedMap = true;
+                } else {
+                    return null;
+                }
+
+                Uses uses = new Uses(variable, null, synchronizedMap);
+                uses.visit(classBody, 0);
+                // Callers outside of the class could lock on a map that escapes, to make compound operations atomic.
+                if (uses.shadowed || uses.monitor || uses.assigned || uses.nullable || !uses.allSafe()) {
+                    return null;
+                }
+
+                TypeTree clazz = rename(map.getClazz(), CONCURRENT_HASH_MAP);
+                if (clazz == null) {
+                    return null;
+                }
+                J.VariableDeclarations updated = withInitializer(declarations, map.withClazz(clazz).withType(CONCURRENT_HASH_MAP));
+                if (renameDeclaredType) {
+                    TypeTree typeExpression = rename(declarations.getTypeExpression(), CONCURRENT_HASH_MAP);
+                    if (typeExpression == null) {
+                        return null;
+                    }
+                    updated = updated.withTypeExpression(typeExpression);
+                }
+                if (synchronizedMap) {
+                    maybeRemoveImport(COLLECTIONS);
+                }
+                maybeRemoveImport(replaced);
+                maybeAddImport(CONCURRENT_HASH_MAP.getFullyQualifiedName());
+                return updated;
+            }
+        });
+    }
+
+    @Nullable
+    private static J.VariableDeclarations.NamedVariable singleVariable(J.VariableDeclarations declarations) {
+        if (declarations.getVariables().size() != 1 || declarations.getVariables().get(0).getInitializer() == null) {
+            return null;
+        }
+        return declarations.getVariables().get(0);
+    }
+
+    private static J.VariableDeclarations withInitializer(J.VariableDeclarations declarations, Expression initializer) {
+        return declarations.withVariables(Collections.singletonList(declarations.getVariables().get(0).withInitializer(initializer)));
+    }
+
+    private static boolean isNewHashMap(Expression expression) {
+        return expression instanceof J.NewClass && ((J.NewClass) expression).getBody() == null &&
+                HASH_MAP.equals(fullyQualifiedName(expression.getType()));
+    }
+
+    /**
+     * The type with its simple name replaced, keeping its type arguments, or `null` when it is not referred to by its
+     * simple name.
+     */
+    @Nullable
+    private static TypeTree rename(@Nullable TypeTree tree, JavaType.FullyQualified type) {
+        if (tree instanceof J.Identifier) {
+            return ((J.Identifier) tree).withSimpleName(type.getClassName()).withType(type);
+        }
+        if (tree instanceof J.ParameterizedType && ((J.ParameterizedType) tree).getClazz() instanceof J.Identifier) {
+            J.ParameterizedType parameterized = (J.ParameterizedType) tree;
+            return parameterized.withClazz(((J.Identifier) parameterized.getClazz()).withSimpleName(type.getClassName()).withType(type));
+        }
+        return null;
+    }
+
+    @Nullable
+    private static String fullyQualifiedName(@Nullable JavaType type) {
+        JavaType.FullyQualified fullyQualified = TypeUtils.asFullyQualified(type);
+        return fullyQualified == null ? null : fullyQualified.getFullyQualifiedName();
+    }
+
+    private static List<Expression> arguments(List<Expression> arguments) {
+        return arguments.size() == 1 && arguments.get(0) instanceof J.Empty ? Collections.emptyList() : arguments;
+    }
+
+    /**
+     * A synchronized type, its unsynchronized replacement with the same constructors, and the methods the replacement
+     * does not have, as `name` or `name/number of arguments`.
+     */
+    private static final class Legacy {
+        private final String type;
+        private final JavaType.FullyQualified replacement;
+        private final Set<String> interfaces;
+        private final Set<String> unsupported;
+
+        private Legacy(String type, String replacement, List<String> interfaces, String... unsupported) {
+            this.type = type;
+            this.replacement = JavaType.Class.build(replacement);
+            this.interfaces = new HashSet<>(interfaces);
+            this.unsupported = new HashSet<>(Arrays.asList(unsupported));
+        }
+
+        private boolean accepts(J.NewClass newClass) {
+            // Only `new Vector<>(initialCapacity, capacityIncrement)` has no counterpart.
+            return newClass.getBody() == null && (!"java.util.Vector".equals(type) || arguments(newClass.getArguments()).size() < 2);
+        }
+
+        private boolean supports(J.MethodInvocation m) {
+            String name = m.getName().getSimpleName();
+            return !unsupported.contains(name) && !unsupported.contains(name + "/" + arguments(m.getArguments()).size());
+        }
+    }
+
+    /**
+     * How a variable is used within its scope. A reference is safe when the object does not escape through it: it
+     * is the receiver of a method that does not return a view or the object itself, the receiver of a chain of methods
+     * that return the object itself in statement position, iterated over, or concatenated to a string.
+     */
+    private static class Uses extends JavaIsoVisitor<Integer> {
+        private final J.VariableDeclarations.NamedVariable variable;
+        @Nullable
+        private final Legacy legacy;
+        private final boolean checkNulls;
+        private final Set<UUID> references = new HashSet<>();
+        private final Set<UUID> safe = new HashSet<>();
+        private boolean shadowed = false;
+        private boolean unsupported = false;
+        private boolean captured = false;
+        private boolean monitor = false;
+        private boolean assigned = false;
+        private boolean nullable = false;
+        // Number of enclosing lambdas and classes, of which the code may run on another thread.
+        private int captures = 0;
+
+        private Uses(J.VariableDeclarations.NamedVariable variable, @Nullable Legacy legacy, boolean checkNulls) {
+            this.variable = variable;
+            this.legacy = legacy;
+            this.checkNulls = checkNulls;
+        }
+
+        private boolean allSafe() {
+            return safe.containsAll(references);
+        }
+
+        private boolean escapes() {
+            return shadowed || unsupported || captured || monitor || assigned || !allSafe();
+        }
+
+        @Override
+        public J.Identifier visitIdentifier(J.Identifier identifier, Integer p) {
+            if (variable.getSimpleName().equals(identifier.getSimpleName())) {
+                references.add(identifier.getId());
+                captured |= captures > 0;
+            }
+            return super.visitIdentifier(identifier, p);
+        }
+
+        @Override
+        public J.VariableDeclarations.NamedVariable visitVariable(J.VariableDeclarations.NamedVariable v, Integer p) {
+            if (v.getId().equals(variable.getId())) {
+                return v;
+            }
+            shadowed |= variable.getSimpleName().equals(v.getSimpleName());
+            return super.visitVariable(v, p);
+        }
+
+        @Override
+        public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method, Integer p) {
+            J.Identifier reference = receiver(method);
+            if (reference != null) {
+                unsupported |= legacy != null && !legacy.supports(method);
+                if (!VIEWS.contains(method.getName().getSimpleName()) && !returnsItself(method)) {
+                    safe.add(reference.getId());
+                }
+                if (checkNulls) {
+                    for (Expression argument : arguments(method.getArguments())) {
+                        nullable |= !isNonNull(argument);
+                    }
+                }
+            }
+            return super.visitMethodInvocation(method, p);
+        }
+
+        @Override
+        public J.Block visitBlock(J.Block block, Integer p) {
+            for (Statement statement : block.getStatements()) {
+                inStatementPosition(statement);
+            }
+            return super.visitBlock(block, p);
+        }
+
+        @Override
+        public J.If visitIf(J.If iff, Integer p) {
+            inStatementPosition(iff.getThenPart());
+            if (iff.getElsePart() != null) {
+                inStatementPosition(iff.getElsePart().getBody());
+            }
+            return super.visitIf(iff, p);
+        }
+
+        @Override
+        public J.ForEachLoop visitForEachLoop(J.ForEachLoop forLoop, Integer p) {
+            J.Identifier reference = reference(forLoop.getControl().getIterable());
+            if (reference != null) {
+                safe.add(reference.getId());
+            }
+            inStatementPosition(forLoop.getBody());
+            return super.visitForEachLoop(forLoop, p);
+        }
+
+        @Override
+        public J.ForLoop visitForLoop(J.ForLoop forLoop, Integer p) {
+            inStatementPosition(forLoop.getBody());
+            return super.visitForLoop(forLoop, p);
+        }
+
+        @Override
+        public J.WhileLoop visitWhileLoop(J.WhileLoop whileLoop, Integer p) {
+            inStatementPosition(whileLoop.getBody());
+            return super.visitWhileLoop(whileLoop, p);
+        }
+
+        @Override
+        public J.Binary visitBinary(J.Binary binary, Integer p) {
+            if (binary.getOperator() == J.Binary.Type.Addition && JavaType.Primitive.String.equals(binary.getType())) {
+                for (Expression operand : Arrays.asList(binary.getLeft(), binary.getRight())) {
+                    J.Identifier reference = reference(operand);
+                    if (reference != null) {
+                        safe.add(reference.getId());
+                    }
+                }
+            }
+            return super.visitBinary(binary, p);
+        }
+
+        @Override
+        public J.Assignment visitAssignment(J.Assignment assignment, Integer p) {
+            assigned |= reference(assignment.getVariable()) != null;
+            return super.visitAssignment(assignment, p);
+        }
+
+        @Override
+        public J.AssignmentOperation visitAssignmentOperation(J.AssignmentOperation assignOp, Integer p) {
+            assigned |= reference(assignOp.getVariable()) != null;
+            return super.visitAssignmentOperation(assignOp, p);
+        }
+
+        @Override
+        public J.Synchronized visitSynchronized(J.Synchronized _sync, Integer p) {
+            monitor |= reference(_sync.getLock().getTree()) != null;
+            return super.visitSynchronized(_sync, p);
+        }
+
+        @Override
+        public J.Lambda visitLambda(J.Lambda lambda, Integer p) {
+            captures++;
+            try {
+                return super.visitLambda(lambda, p);
+            } finally {
+                captures--;
+            }
+        }
+
+        @Override
+        public J.NewClass visitNewClass(J.NewClass newClass, Integer p) {
+            if (newClass.getBody() == null) {
+                return super.visitNewClass(newClass, p);
+            }
+            captures++;
+            try {
+                return super.visitNewClass(newClass, p);
+            } finally {
+                captures--;
+            }
+        }
+
+        @Override
+        public J.ClassDeclaration visitClassDeclaration(J.ClassDeclaration classDecl, Integer p) {
+            captures++;
+            try {
+                return super.visitClassDeclaration(classDecl, p);
+            } finally {
+                captures--;
+            }
+        }
+
+        private void inStatementPosition(@Nullable Statement statement) {
+            if (statement instanceof J.MethodInvocation) {
+                J.Identifier reference = receiver((J.MethodInvocation) statement);
+                if (reference != null) {
+                    safe.add(reference.getId());
+                }
+            }
+        }
+
+        /**
+         * The reference to the variable that a call is made on, directly or through methods that return the object
+         * itself, such as `builder.append(a).append(b)`.
+         */
+        @Nullable
+        private J.Identifier receiver(J.MethodInvocation method) {
+            Expression select = method.getSelect();
+            while (select instanceof J.MethodInvocation && returnsItself((J.MethodInvocation) select)) {
+                select = ((J.MethodInvocation) select).getSelect();
+            }
+            return reference(select);
+        }
+
+        private boolean returnsItself(J.MethodInvocation method) {
+            return legacy != null && method.getType() != null &&
+                    legacy.type.equals(fullyQualifiedName(method.getType().getResolvedSignature().getReturnType()));
+        }
+
+        @Nullable
+        private J.Identifier reference(@Nullable Expression expression) {
+            if (expression instanceof J.FieldAccess && ((J.FieldAccess) expression).getTarget() instanceof J.Identifier &&
+                    "this".equals(((J.Identifier) ((J.FieldAccess) expression).getTarget()).getSimpleName())) {
+                expression = ((J.FieldAccess) expression).getName();
+            }
+            return expression instanceof J.Identifier && variable.getSimpleName().equals(((J.Identifier) expression).getSimpleName()) ?
+                    (J.Identifier) expression : null;
+        }
+
+        private static boolean isNonNull(Expression argument) {
+            JavaType type = argument.getType();
+            return type instanceof JavaType.Primitive && type != JavaType.Primitive.String && type != JavaType.Primitive.Null ||
+                    argument instanceof J.Literal && ((J.Literal) argument).getValue() != null ||
+                    argument instanceof J.NewClass || argument instanceof J.Lambda || argument instanceof J.MemberReference ||
+                    argument instanceof J.Binary && JavaType.Primitive.String.equals(type);
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package org.openrewrite.starter;
+
+import nl.kevinvandervlist.rewrite.ChangeEvents;
+import nl.kevinvandervlist.rewrite.JavaTemplateCache;
+import nl.kevinvandervlist.rewrite.MethodInvocations;
+import nl.kevinvandervlist.rewrite.RecipePhaseEvent;
+import org.openrewrite.ExecutionContext;
+import org.openrewrite.Recipe;
+import org.openrewrite.Tree;
+import org.openrewrite.TreeVisitor;
+import org.openrewrite.internal.ListUtils;
+import org.openrewrite.internal.lang.Nullable;
+import org.openrewrite.java.JavaIsoVisitor;
+import org.openrewrite.java.JavaVisitor;
+import org.openrewrite.java.tree.*;
+import org.openrewrite.marker.Markers;
+
+import java.util.*;
+
+/**
+ * Append to a `StringBuilder` instead of concatenating a local `String` in a loop, which copies the string on every
+ * iteration. The builder is created right before the loop and converted back to the string right after it:
+ * <pre>
+ * String s = "";
+ * StringBuilder sBuilder = new StringBuilder();
+ * for (String part : parts) {
+ *     sBuilder.append(part).append(", ");
+ * }
+ * s = sBuilder.toString();
+ * </pre>
+ * A loop is only rewritten when that is safe:
+ * <ul>
+ *     <li>The string is not null before the loop, because it is initialized or last assigned with a literal, or was
+ *     converted back from a builder.</li>
+ *     <li>The string is declared in the block that contains the loop, so no code that observes the string can run
+ *     between an exception or `return` in the loop and the end of the string's scope.</li>
+ *     <li>Every assignment to the string in the loop is an append statement, `s += x` or `s = s + x + ...`, of which
+ *     no operand is an array or `null`.</li>
+ *     <li>No `break` or `continue` leaves the loop for a label outside of it, skipping the conversion back.</li>
+ *     <li>The loop declares no classes, and nothing in it with the same name as the string.</li>
+ * </ul>
+ * Other reads of the string in the loop, including in nested loops, read `sBuilder.toString()` instead.
+ */
+public class StringConcatenationInLoop extends Recipe {
+    private static final JavaType.FullyQualified STRING_BUILDER = JavaType.Class.build("java.lang.StringBuilder");
+
+    private static final JavaType.Method TO_STRING = MethodInvocations.methodType(STRING_BUILDER, "toString",
+            JavaType.Primitive.String, Collections.emptyList(), Collections.emptyList());
+
+    private static final JavaTemplateCache.Key NEW_BUILDER = JavaTemplateCache.key("StringBuilder #{} = new StringBuilder();");
+    private static final JavaTemplateCache.Key NEW_BUILDER_OF_STRING = JavaTemplateCache.key("StringBuilder #{} = new StringBuilder(#{});");
+    // The value of a string that is known not to be null, but of which the value itself is not known.
+    private static final String UNKNOWN = "?";
+
+    private static final JavaTemplateCache.Key TO_STRING_TEMPLATE = JavaTemplateCache.key("#{} = #{}.toString();");
+
+    @Override
+    public String getDisplayName() {
+        return "Use a StringBuilder for string concatenation in loops";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Concatenating a string in a loop copies the whole string on every iteration, appending to a StringBuilder does not.";
+    }
+
+    @Override
+    protected TreeVisitor<?, ExecutionContext> getVisitor() {
+        return RecipePhaseEvent.profile(getName(), RecipePhaseEvent.Phase.REWRITE, new JavaVisitor<ExecutionContext>() {
+            private final Set<String> names = new HashSet<>();
+
+            @Override
+            public J visitCompilationUnit(J.CompilationUnit cu, ExecutionContext executionContext) {
+                names.clear();
+                new JavaIsoVisitor<Set<String>>() {
+                    @Override
+                    public J.Identifier visitIdentifier(J.Identifier identifier, Set<String> names) {
+                        names.add(identifier.getSimpleName());
+                        return identifier;
+                    }
+                }.visit(cu, names);
+                return super.visitCompilationUnit(cu, executionContext);
+            }
+
+            @Override
+            public J visitBlock(J.Block block, ExecutionContext executionContext) {
+                J.Block b = (J.Block) super.visitBlock(block, executionContext);
+                for (int i = 0; i < b.getStatements().size(); i++) {
+                    Statement statement = b.getStatements().get(i);
+                    if (statement instanceof J.VariableDeclarations) {
+                        for (J.VariableDeclarations.NamedVariable variable : ((J.VariableDeclarations) statement).getVariables()) {
+                            if (isString(variable.getType())) {
+                                b = rewriteLoops(b, i, variable, executionContext);
+                            }
+                        }
+                    }
+                }
+                return b;
+            }
+
+            /**
+             * Rewrite the loops that follow the declaration of a string in a block.
+             */
+            private J.Block rewriteLoops(J.Block b, int declaration, J.VariableDeclarations.NamedVariable variable,
+                                         ExecutionContext executionContext) {
+                String name = variable.getSimpleName();
+                String value = stringLiteral(variable.getInitializer());
+                for (int i = declaration + 1; i < b.getStatements().size(); i++) {
+                    Statement statement = b.getStatements().get(i);
+                    if (statement instanceof J.Assignment && isVariable(((J.Assignment) statement).getVariable(), name)) {
+                        value = stringLiteral(((J.Assignment) statement).getAssignment());
+                        continue;
+                    }
+                    // A null string would become "null" when the loop does not append anything.
+                    LoopAnalysis analysis = value != null && isLoop(statement) ? new LoopAnalysis(name).analyze(statement) : null;
+                    if (analysis == null || !analysis.isSafe()) {
+                        if (value != null && assigns(statement, name)) {
+                            value = null;
+                        }
+                        continue;
+                    }
+
+                    String builder = uniqueName(name + "Builder");
+                    Statement loop = (Statement) new AppendToBuilder(analysis, builder).visit(statement, executionContext);
+                    b = b.withStatements(ListUtils.map(b.getStatements(), s -> s == statement ? loop : s));
+
+                    RecipePhaseEvent template = RecipePhaseEvent.begin(StringConcatenationInLoop.this.getName(), RecipePhaseEvent.Phase.TEMPLATE);
+                    if (value.isEmpty()) {
+                        b = JavaTemplateCache.apply(NEW_BUILDER, getCursor(), b, loop.getCoordinates().before(), builder);
+                    } else {
+                        b = JavaTemplateCache.apply(NEW_BUILDER_OF_STRING, getCursor(), b, loop.getCoordinates().before(), builder, name);
+                    }
+                    b = JavaTemplateCache.apply(TO_STRING_TEMPLATE, getCursor(), b, loop.getCoordinates().after(), name, builder);
+                    template.end(getCursor(), 2);
+                    ChangeEvents.record(StringConcatenationInLoop.this.getName(), getCursor(), loop);
+
+                    // Skip the declaration of the builder and the loop. After the conversion, the string is still not null,
+                    // but its value is unknown.
+                    i += 2;
+                    value = UNKNOWN;
+                }
+                return b;
+            }
+
+            private String uniqueName(String name) {
+                String unique = name;
+                for (int suffix = 1; names.contains(unique); suffix++) {
+                    unique = name + suffix;
+                }
+                names.add(unique);
+                return unique;
+            }
+        });
+    }
+
+    /**
+     * The value of a string literal, or `null` for any other expression.
+     */
+    @Nullable
+    private static String stringLiteral(@Nullable Expression expression) {
+        return expression instanceof J.Literal && ((J.Literal) expression).getValue() instanceof String ?
+                (String) ((J.Literal) expression).getValue() : null;
+    }
+
+    private static boolean isString(@Nullable JavaType type) {
+        if (type == JavaType.Primitive.String) {
+            return true;
+        }
+        JavaType.FullyQualified fullyQualified = TypeUtils.asFullyQualified(type);
+        return fullyQualified != null && "java.lang.String".equals(fullyQualified.getFullyQualifiedName());
+    }
+
+    private static boolean isLoop(Statement statement) {
+        while (statement instanceof J.Label) {
+            statement = ((J.Label) statement).getStatement();
+        }
+        return statement instanceof J.ForLoop || statement instanceof J.ForEachLoop ||
+                statement instanceof J.WhileLoop || statement instanceof J.DoWhileLoop;
+    }
+
+    private static boolean isVariable(@Nullable Expression expression, String name) {
+        return expression instanceof J.Identifier && name.equals(((J.Identifier) expression).getSimpleName());
+    }
+
+    private static boolean assigns(Statement statement, String name) {
+        boolean[] assigns = new boolean[1];
+        new JavaIsoVisitor<boolean[]>() {
+            @Override
+            public J.Assignment visitAssignment(J.Assignment assignment, boolean[] assigns) {
+                assigns[0] |= isVariable(assignment.getVariable(), name);
+                return super.visitAssignment(assignment, assigns);
+            }
+
+            @Override
+            public J.AssignmentOperation visitAssignmentOperation(J.AssignmentOperation assignOp, boolean[] assigns) {
+                assigns[0] |= isVariable(assignOp.getVariable(), name);
+                return super.visitAssignmentOperation(assignOp, assigns);
+            }
+        }.visit(statement, assigns);
+        return assigns[0];
+    }
+
+    /**
+     * The operands appended to the string by a statement `s += x` or `s = s + x + ...`, or `null` when the statement
+     * is not such an append, or appends an operand that a `StringBuilder` would append differently.
+     */
+    @Nullable
+    private static List<Expression> appendedOperands(@Nullable Statement statement, String name) {
+        List<Expression> operands = new ArrayList<>(2);
+        if (statement instanceof J.AssignmentOperation) {
+            J.AssignmentOperation assignOp = (J.AssignmentOperation) statement;
+            if (assignOp.getOperator() != J.AssignmentOperation.Type.Addition || !isVariable(assignOp.getVariable(), name)) {
+                return null;
+            }
+            operands.add(assignOp.getAssignment());
+        } else if (statement instanceof J.Assignment) {
+            J.Assignment assignment = (J.Assignment) statement;
+            if (!isVariable(assignment.getVariable(), name)) {
+                return null;
+            }
+            Expression e = assignment.getAssignment();
+            while (e instanceof J.Binary && ((J.Binary) e).getOperator() == J.Binary.Type.Addition) {
+                operands.add(0, ((J.Binary) e).getRight());
+                e = ((J.Binary) e).getLeft();
+            }
+            if (!isVariable(e, name) || operands.isEmpty()) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+        for (Expression operand : operands) {
+            // append(char[]) appends the characters where concatenation appends the array's toString(), and
+            // append(null) does not compile.
+            JavaType type = operand.getType();
+            if (type == null || type == JavaType.Primitive.Null || type instanceof JavaType.Array) {
+                return null;
+            }
+        }
+        return operands;
+    }
+
+    /**
+     * Finds the append statements and other reads of a string in a loop, and whether appending to a builder instead
+     * is safe.
+     */
+    private static class LoopAnalysis extends JavaIsoVisitor<Integer> {
+        private final String name;
+        private final Map<UUID, List<Expression>> appends = new HashMap<>();
+        private final Set<UUID> reads = new HashSet<>();
+        private final Set<String> labels = new HashSet<>();
+        private int appendsFound;
+        private boolean unsafe;
+
+        private LoopAnalysis(String name) {
+            this.name = name;
+        }
+
+        LoopAnalysis analyze(Statement loop) {
+            visit(loop, 0);
+            return this;
+        }
+
+        boolean isSafe() {
+            return !unsafe && appendsFound > 0;
+        }
+
+        private void statement(@Nullable Statement statement) {
+            List<Expression> operands = appendedOperands(statement, name);
+            if (operands != null) {
+                appends.put(statement.getId(), operands);
+            }
+        }
+
+        @Override
+        public J.Block visitBlock(J.Block block, Integer p) {
+            for (Statement statement : block.getStatements()) {
+                statement(statement);
+            }
+            return super.visitBlock(block, p);
+        }
+
+        @Override
+        public J.If visitIf(J.If iff, Integer p) {
+            statement(iff.getThenPart());
+            if (iff.getElsePart() != null) {
+                statement(iff.getElsePart().getBody());
+            }
+            return super.visitIf(iff, p);
+        }
+
+        @Override
+        public J.ForLoop visitForLoop(J.ForLoop forLoop, Integer p) {
+            statement(forLoop.getBody());
+            return super.visitForLoop(forLoop, p);
+        }
+
+        @Override
+        public J.ForEachLoop visitForEachLoop(J.ForEachLoop forLoop, Integer p) {
+            statement(forLoop.getBody());
+            return super.visitForEachLoop(forLoop, p);
+        }
+
+        @Override
+        public J.WhileLoop visitWhileLoop(J.WhileLoop whileLoop, Integer p) {
+            statement(whileLoop.getBody());
+            return super.visitWhileLoop(whileLoop, p);
+        }
+
+        @Override
+        public J.DoWhileLoop visitDoWhileLoop(J.DoWhileLoop doWhileLoop, Integer p) {
+            statement(doWhileLoop.getBody());
+            return super.visitDoWhileLoop(doWhileLoop, p);
+        }
+
+        @Override
+        public J.Label visitLabel(J.Label label, Integer p) {
+            labels.add(label.getLabel().getSimpleName());
+            statement(label.getStatement());
+            visit(label.getStatement(), p);
+            return label;
+        }
+
+        @Override
+        public J.Break visitBreak(J.Break breakStatement, Integer p) {
+            unsafe |= breakStatement.getLabel() != null && !labels.contains(breakStatement.getLabel().getSimpleName());
+            return breakStatement;
+        }
+
+        @Override
+        public J.Continue visitContinue(J.Continue continueStatement, Integer p) {
+            unsafe |= continueStatement.getLabel() != null && !labels.contains(continueStatement.getLabel().getSimpleName());
+            return continueStatement;
+        }
+
+        @Override
+        public J.Assignment visitAssignment(J.Assignment assignment, Integer p) {
+            if (!isVariable(assignment.getVariable(), name)) {
+                return super.visitAssignment(assignment, p);
+            }
+            visitAppendedOperands(assignment, p);
+            return assignment;
+        }
+
+        @Override
+        public J.AssignmentOperation visitAssignmentOperation(J.AssignmentOperation assignOp, Integer p) {
+            if (!isVariable(assignOp.getVariable(), name)) {
+                return super.visitAssignmentOperation(assignOp, p);
+            }
+            visitAppendedOperands(assignOp, p);
+            return assignOp;
+        }
+
+        private void visitAppendedOperands(Statement statement, Integer p) {
+            List<Expression> operands = appends.get(statement.getId());
+            if (operands == null) {
+                unsafe = true;
+                return;
+            }
+            appendsFound++;
+            for (int i = 0; i < operands.size(); i++) {
+                int readsBefore = reads.size();
+                visit(operands.get(i), p);
+                // The builder already holds the operands before it when a later operand reads the string, where
+                // the concatenation reads the string as it was before the statement.
+                unsafe |= i > 0 && reads.size() > readsBefore;
+            }
+        }
+
+        @Override
+        public J.VariableDeclarations.NamedVariable visitVariable(J.VariableDeclarations.NamedVariable variable, Integer p) {
+            unsafe |= name.equals(variable.getSimpleName());
+            return super.visitVariable(variable, p);
+        }
+
+        @Override
+        public J.ClassDeclaration visitClassDeclaration(J.ClassDeclaration classDecl, Integer p) {
+            unsafe = true;
+            return classDecl;
+        }
+
+        @Override
+        public J.NewClass visitNewClass(J.NewClass newClass, Integer p) {
+            unsafe |= newClass.getBody() != null;
+            return super.visitNewClass(newClass, p);
+        }
+
+        @Override
+        public J.Identifier visitIdentifier(J.Identifier identifier, Integer p) {
+            if (name.equals(identifier.getSimpleName())) {
+                reads.add(identifier.getId());
+            }
+            return identifier;
+        }
+
+        // The names of methods, fields, members and annotation arguments are not reads of the string.
+
+        @Override
+        public J.MethodInvocation visitMethodInvocation(J.MethodInvocation method, Integer p) {
+            if (method.getSelect() != null) {
+                visit(method.getSelect(), p);
+            }
+            for (Expression argument : method.getArguments()) {
+                visit(argument, p);
+            }
+            return method;
+        }
+
+        @Override
+        public J.FieldAccess visitFieldAccess(J.FieldAccess fieldAccess, Integer p) {
+            visit(fieldAccess.getTarget(), p);
+            return fieldAccess;
+        }
+
+        @Override
+        public J.MemberReference visitMemberReference(J.MemberReference memberRef, Integer p) {
+            visit(memberRef.getContaining(), p);
+            return memberRef;
+        }
+
+        @Override
+        public J.Annotation visitAnnotation(J.Annotation annotation, Integer p) {
+            return annotation;
+        }
+    }
+
+    /**
+     * Replaces the append statements and reads found by a {@link LoopAnalysis} with calls on the builder.
+     */
+    private static class AppendToBuilder extends JavaVisitor<ExecutionContext> {
+        private final LoopAnalysis analysis;
+        private final String builder;
+        private final JavaType.Variable builderType;
+
+        private AppendToBuilder(LoopAnalysis analysis, String builder) {
+            this.analysis = analysis;
+            this.builder = builder;
+            this.builderType = new JavaType.Variable(0, builder, null, STRING_BUILDER, Collections.emptyList());
+        }
+
+        @Override
+        public J visitAssignment(J.Assignment assignment, ExecutionContext executionContext) {
+            return analysis.appends.containsKey(assignment.getId()) ?
+                    append(assignment, executionContext) :
+                    super.visitAssignment(assignment, executionContext);
+        }
+
+        @Override
+        public J visitAssignmentOperation(J.AssignmentOperation assignOp, ExecutionContext executionContext) {
+            return analysis.appends.containsKey(assignOp.getId()) ?
+                    append(assignOp, executionContext) :
+                    super.visitAssignmentOperation(assignOp, executionContext);
+        }
+
+        @Override
+        public J visitIdentifier(J.Identifier identifier, ExecutionContext executionContext) {
+            if (!analysis.reads.contains(identifier.getId())) {
+                return super.visitIdentifier(identifier, executionContext);
+            }
+            return MethodInvocations.invocation(builder(), "toString", TO_STRING, Collections.emptyList())
+                    .withPrefix(identifier.getPrefix());
+        }
+
+        /**
+         * `builder.append(x).append(...)` in place of an append statement.
+         */
+        private J append(Statement statement, ExecutionContext executionContext) {
+            Expression select = builder();
+            for (Expression operand : analysis.appends.get(statement.getId())) {
+                Expression argument = (Expression) visit(operand, executionContext, getCursor());
+                JavaType.Method append = MethodInvocations.methodType(STRING_BUILDER, "append", STRING_BUILDER,
+                        Collections.singletonList(operand.getType()), Collections.singletonList("x"));
+                select = MethodInvocations.invocation(select, "append", append,
+                        Collections.singletonList(argument.withPrefix(Space.EMPTY)));
+            }
+            return select.withPrefix(statement.getPrefix());
+        }
+
+        private J.Identifier builder() {
+            return new J.Identifier(Tree.randomId(), Space.EMPTY, Markers.EMPTY, builder, STRING_BUILDER, builderType);
+        }
+    }
+}
@@ -1,21 +1,51 @@
 package org.openrewrite.starter;
 
+import nl.kevinvandervlist.rewrite.ChangeEvents;
+import nl.kevinvandervlist.rewrite.JavaTemplateCache;
+import nl.kevinvandervlist.rewrite.RecipePhaseEvent;
 import org.openrewrite.ExecutionContext;
 import org.openrewrite.Recipe;
 import org.openrewrite.TreeVisitor;
-import org.openrewrite.internal.ListUtils;
-import org.openrewrite.internal.NameCaseConvention;
-import org.openrewrite.java.ChangeMethodName;
-import org.openrewrite.java.JavaTemplate;
+import org.openrewrite.internal.lang.Nullable;
 import org.openrewrite.java.JavaVisitor;
 import org.openrewrite.java.MethodMatcher;
+import org.openrewrite.java.tree.Expression;
 import org.openrewrite.java.tree.J;
-import org.openrewrite.java.tree.JavaType;
 
-import java.util.Arrays;
-import java.util.Objects;
+import java.util.List;
+import java.util.Locale;
 
+/**
+ * Compare strings ignoring case, instead of changing the case of one or both of them first. Every rewrite removes the
+ * temporary strings created by `toUpperCase()` and `toLowerCase()`.
+ * <p>
+ * A comparison is only rewritten when ignoring case gives the same answer: both sides have their case changed in the
+ * same way, or one side is a literal that is already in the case the other side is changed to. Like the
+ * `IgnoreCase` methods themselves, this compares character by character, so a locale passed to `toUpperCase` or
+ * `toLowerCase` is dropped.
+ */
 public class UnnecessaryCaseChange extends Recipe {
+    private static final MethodMatcher EQUALS = new MethodMatcher("java.lang.String equals(java.lang.Object)");
+    private static final MethodMatcher EQUALS_IGNORE_CASE = new MethodMatcher("java.lang.String equalsIgnoreCase(java.lang.String)");
+    private static final MethodMatcher COMPARE_TO = new MethodMatcher("java.lang.String compareTo(java.lang.String)");
+    private static final MethodMatcher COMPARE_TO_IGNORE_CASE = new MethodMatcher("java.lang.String compareToIgnoreCase(java.lang.String)");
+    private static final MethodMatcher REGION_MATCHES = new MethodMatcher("java.lang.String regionMatches(int, java.lang.String, int, int)");
+    private static final MethodMatcher REGION_MATCHES_IGNORE_CASE = new MethodMatcher("java.lang.String regionMatches(boolean, int, java.lang.String, int, int)");
+    private static final MethodMatcher TO_LOWER_CASE = new MethodMatcher("java.lang.String toLowerCase(..)");
+    private static final MethodMatcher TO_UPPER_CASE = new MethodMatcher("java.lang.String toUpperCase(..)");
+
+    private static final JavaTemplateCache.Key EQUALS_IGNORE_CASE_TEMPLATE =
+            JavaTemplateCache.key("#{any(java.lang.String)}.equalsIgnoreCase(#{any(java.lang.String)})");
+    private static final JavaTemplateCache.Key COMPARE_TO_IGNORE_CASE_TEMPLATE =
+            JavaTemplateCache.key("#{any(java.lang.String)}.compareToIgnoreCase(#{any(java.lang.String)})");
+    private static final JavaTemplateCache.Key REGION_MATCHES_IGNORE_CASE_TEMPLATE =
+            JavaTemplateCache.key("#{any(java.lang.String)}.regionMatches(true, #{any(int)}, #{any(java.lang.String)}, #{any(int)}, #{any(int)})");
+
+    private enum Case {
+        UPPER,
+        LOWER
+    }
+
     @Override
     public String getDisplayName() {
         return "UnnecessaryCaseChange";
@@ -28,55 +58,95 @@ public class UnnecessaryCaseChange extends Recipe {
 
     @Override
     protected TreeVisitor<?, ExecutionContext> getVisitor() {
-        return new JavaVisitor<ExecutionContext>() {
-            private final MethodMatcher EQ = new MethodMatcher("java.lang.String equals(String)");
-            private final MethodMatcher EQANY = new MethodMatcher("java.lang.String equals(..)");
-            private final MethodMatcher EQ_IGNORE_CASE = new MethodMatcher("java.lang.String equalsIgnoreCase(java.lang.String)");
-            private final MethodMatcher LOWER_CASE = new MethodMatcher("java.lang.String toLowerCase()");
-            private final MethodMatcher UPPER_CASE = new MethodMatcher("java.lang.String toUpperCase()");
-
-            private final JavaTemplate newEqualsIgnoreCase = JavaTemplate
-                    .builder(this::getCursor, "#{any(java.lang.String)}.equalsIgnoreCase(#{any(java.lang.String)})")
-                    .build();
-
+        return RecipePhaseEvent.profile(getName(), RecipePhaseEvent.Phase.REWRITE, new JavaVisitor<ExecutionContext>() {
             @Override
             public J visitMethodInvocation(J.MethodInvocation method, ExecutionContext executionContext) {
-                // "Abc".toUpperCase().equals("ABC");
-//                if(EQ.matches(method)) {
-//                    String x = method.print(getCursor());
-//                    System.out.println(x);
-//                }
-//                if(EQANY.matches(method)) {
-//                    System.out.println(isToLowerOrUpper(method));
-//                    String x = method.print(getCursor());
-//                    System.out.println(x);
-//                }
+                J visited = super.visitMethodInvocation(method, executionContext);
+                if (!(visited instanceof J.MethodInvocation) || ((J.MethodInvocation) visited).getSelect() == null) {
+                    return visited;
+                }
+                J.MethodInvocation m = (J.MethodInvocation) visited;
+                J updated = ignoreCase(m);
+                if (updated != m) {
+                    ChangeEvents.record(UnnecessaryCaseChange.this.getName(), getCursor(), updated);
+                }
+                return updated;
+            }
 
-                // "abc".equals("ABC".toLowerCase());
-                // Why does EQ matcher not work?
-                //if(EQ.matches(method)) {
-                if(method.getName().getSimpleName().equals("equals") && method.getArguments().size() == 1 && Objects.equals(method.getArguments().get(0).getType(), JavaType.buildType("java.lang.String"))) {
-                    J head = method.getArguments().get(0);
-                    if(head instanceof J.MethodInvocation &&
-                            isToLowerOrUpper((J.MethodInvocation) head)) {
-                        J.MethodInvocation h = (J.MethodInvocation) head;
-                        //J.MethodInvocation updated = newEqualsIgnoreCase.withTemplate(method.withTemplate(newEqualsIgnoreCase, method.getCoordinates().replaceMethod(), method.getSelect(), h.getSelect()));
-                        //System.out.println(updated);
-                        //return updated;
-                        //System.out.println(h.getSelect());
+            private J ignoreCase(J.MethodInvocation m) {
+                Expression receiver = m.getSelect();
+                List<Expression> arguments = m.getArguments();
+                if (EQUALS.matches(m)) {
+                    Expression argument = arguments.get(0);
+                    Case receiverCase = caseOf(receiver);
+                    Case argumentCase = caseOf(argument);
+                    if (receiverCase != null && (argumentCase == receiverCase || isLiteralIn(argument, receiverCase)) ||
+                            argumentCase != null && isLiteralIn(receiver, argumentCase)) {
+                        return apply(EQUALS_IGNORE_CASE_TEMPLATE, m, withoutCaseChange(receiver), withoutCaseChange(argument));
+                    }
+                } else if (EQUALS_IGNORE_CASE.matches(m) || COMPARE_TO_IGNORE_CASE.matches(m)) {
+                    Expression argument = arguments.get(0);
+                    if (caseOf(receiver) != null || caseOf(argument) != null) {
+                        return apply(EQUALS_IGNORE_CASE.matches(m) ? EQUALS_IGNORE_CASE_TEMPLATE : COMPARE_TO_IGNORE_CASE_TEMPLATE,
+                                m, withoutCaseChange(receiver), withoutCaseChange(argument));
+                    }
+                } else if (COMPARE_TO.matches(m)) {
+                    // compareToIgnoreCase orders characters by their lower case, so upper case comparisons differ.
+                    Expression argument = arguments.get(0);
+                    if (caseOf(receiver) == Case.LOWER && caseOf(argument) == Case.LOWER) {
+                        return apply(COMPARE_TO_IGNORE_CASE_TEMPLATE, m, withoutCaseChange(receiver), withoutCaseChange(argument));
+                    }
+                } else if (REGION_MATCHES.matches(m)) {
+                    Case receiverCase = caseOf(receiver);
+                    if (receiverCase != null && caseOf(arguments.get(1)) == receiverCase) {
+                        return apply(REGION_MATCHES_IGNORE_CASE_TEMPLATE, m, withoutCaseChange(receiver),
+                                arguments.get(0), withoutCaseChange(arguments.get(1)), arguments.get(2), arguments.get(3));
+                    }
+                } else if (REGION_MATCHES_IGNORE_CASE.matches(m)) {
+                    if (isTrue(arguments.get(0)) && (caseOf(receiver) != null || caseOf(arguments.get(2)) != null)) {
+                        return apply(REGION_MATCHES_IGNORE_CASE_TEMPLATE, m, withoutCaseChange(receiver),
+                                arguments.get(1), withoutCaseChange(arguments.get(2)), arguments.get(3), arguments.get(4));
                     }
                 }
-//                System.out.println(method.getSimpleName() + "; " + isToLowerOrUpper(method));
-//                // ((J.MethodInvocation) method.getSelect()).getName()
-//                if(EQ.matches(method)) {
-//                    System.out.println(method.getName());
-//                }
-                return super.visitMethodInvocation(method, executionContext);
+                return m;
             }
 
-            private boolean isToLowerOrUpper(J.MethodInvocation m) {
-                return LOWER_CASE.matches(m) || UPPER_CASE.matches(m);
+            private J apply(JavaTemplateCache.Key template, J.MethodInvocation m, Object... parameters) {
+                RecipePhaseEvent event = RecipePhaseEvent.begin(UnnecessaryCaseChange.this.getName(), RecipePhaseEvent.Phase.TEMPLATE);
+                J j = JavaTemplateCache.apply(template, getCursor(), m, m.getCoordinates().replace(), parameters);
+                event.end(getCursor(), 1);
+                return j;
             }
-        };
+        });
+    }
+
+    /**
+     * The case a string is changed to by `toUpperCase()` or `toLowerCase()`, or `null` for any other expression.
+     */
+    @Nullable
+    private static Case caseOf(@Nullable Expression expression) {
+        if (!(expression instanceof J.MethodInvocation) || ((J.MethodInvocation) expression).getSelect() == null) {
+            return null;
+        }
+        J.MethodInvocation m = (J.MethodInvocation) expression;
+        return TO_UPPER_CASE.matches(m) ? Case.UPPER : TO_LOWER_CASE.matches(m) ? Case.LOWER : null;
+    }
+
+    private static Expression withoutCaseChange(Expression expression) {
+        return caseOf(expression) == null ?
+                expression :
+                ((J.MethodInvocation) expression).getSelect().withPrefix(expression.getPrefix());
+    }
+
+    private static boolean isLiteralIn(@Nullable Expression expression, Case c) {
+        if (!(expression instanceof J.Literal) || !(((J.Literal) expression).getValue() instanceof String)) {
+            return false;
+        }
+        String value = (String) ((J.Literal) expression).getValue();
+        return value.equals(c == Case.UPPER ? value.toUpperCase(Locale.ROOT) : value.toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean isTrue(Expression expression) {
+        return expression instanceof J.Literal && Boolean.TRUE.equals(((J.Literal) expression).getValue());
     }
 }
@@ -0,0 +1,114 @@
+package nl.kevinvandervlist.rewrite
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable
+import org.openrewrite.ExecutionContext
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.java.JavaIsoVisitor
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.JavaTemplate
+import org.openrewrite.java.tree.J
+import java.lang.management.ManagementFactory
+
+/**
+ * Compares inserting the constants of a class with one template application per constant against inserting
+ * all of them with a single template application, as `AvoidDuplicateLiterals` does, and checks that the heap
+ * allocated by the recipe per literal does not grow with the number of literals that are never duplicated.
+ *
+ * Run with `BENCHMARK=true ./gradlew test --tests '*Benchmark'`.
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+class AvoidDuplicateLiteralsBenchmark {
+    private val parser: JavaParser = JavaParser.fromJavaVersion().build()
+
+    private fun source(constants: Int): String {
+        val calls = (0 until constants).joinToString("\n") { i ->
+            "        info(\"value$i\"); info(\"value$i\");"
+        }
+        return "class Test {\n    static void info(String m) {}\n    static void f() {\n$calls\n    }\n}"
+    }
+
+    private fun literals(cu: J.CompilationUnit): List<J.Literal> {
+        val found = LinkedHashMap<Any?, J.Literal>()
+        object : JavaIsoVisitor<MutableMap<Any?, J.Literal>>() {
+            override fun visitLiteral(literal: J.Literal, p: MutableMap<Any?, J.Literal>): J.Literal {
+                p.putIfAbsent(literal.value, literal)
+                return literal
+            }
+        }.visit(cu, found)
+        return found.values.toList()
+    }
+
+    private class PerConstantInsertion(val literals: List<J.Literal>) : JavaIsoVisitor<ExecutionContext>() {
+        override fun visitClassDeclaration(classDecl: J.ClassDeclaration, p: ExecutionContext): J.ClassDeclaration {
+            var c = classDecl
+            literals.forEachIndexed { i, literal ->
+                c = c.withBody(c.body.withTemplate(
+                    JavaTemplate.builder({ cursor }, "private static final String VALUE_$i = #{any(String)}").build(),
+                    c.body.coordinates.firstStatement(), literal))
+            }
+            return c
+        }
+    }
+
+    private class BatchedInsertion(val literals: List<J.Literal>) : JavaIsoVisitor<ExecutionContext>() {
+        override fun visitClassDeclaration(classDecl: J.ClassDeclaration, p: ExecutionContext): J.ClassDeclaration {
+            val snippet = literals.indices.joinToString("\n") { i -> "private static final String VALUE_$i = #{any(String)};" }
+            return classDecl.withBody(classDecl.body.withTemplate(
+                JavaTemplate.builder({ cursor }, snippet).build(),
+                classDecl.body.coordinates.firstStatement(), *literals.toTypedArray()))
+        }
+    }
+
+    private fun time(block: () -> Unit): Long {
+        val start = System.nanoTime()
+        block()
+        return (System.nanoTime() - start) / 1_000_000
+    }
+
+    @Test
+    fun templateInsertionScaling() {
+        for (constants in listOf(10, 20, 40, 80)) {
+            val cu = parser.parse(source(constants))[0]
+            parser.reset()
+            val literals = literals(cu)
+            val perConstant = time { PerConstantInsertion(literals).visit(cu, InMemoryExecutionContext()) }
+            val batched = time { BatchedInsertion(literals).visit(cu, InMemoryExecutionContext()) }
+            val recipe = time { AvoidDuplicateLiterals().run(listOf(cu), InMemoryExecutionContext()) }
+            println("constants=$constants perConstant=${perConstant}ms batched=${batched}ms recipe=${recipe}ms")
+        }
+    }
+
+    private fun mostlyUniqueSource(literals: Int): String {
+        val calls = (0 until literals).joinToString("\n") { i ->
+            if (i % 10 == 0) "        info(\"shared\");" else "        info(\"unique$i\");"
+        }
+        return "class Test {\n    static void info(String m) {}\n    static void f() {\n$calls\n    }\n}"
+    }
+
+    private fun allocatedBytes(block: () -> Unit): Long {
+        val threads = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+        val threadId = Thread.currentThread().id
+        val before = threads.getThreadAllocatedBytes(threadId)
+        block()
+        return threads.getThreadAllocatedBytes(threadId) - before
+    }
+
+    @Test
+    fun analysisAllocation() {
+        val bytesPerLiteral = mutableListOf<Long>()
+        for (literals in listOf(1_000, 2_000, 4_000, 8_000)) {
+            val cu = parser.parse(mostlyUniqueSource(literals))[0]
+            parser.reset()
+            // Warm up, so class loading is not part of the measurement.
+            AvoidDuplicateLiterals().run(listOf(cu), InMemoryExecutionContext())
+            val bytes = allocatedBytes { AvoidDuplicateLiterals().run(listOf(cu), InMemoryExecutionContext()) }
+            println("literals=$literals allocated=${bytes / 1024}KiB perLiteral=${bytes / literals}B")
+            bytesPerLiteral.add(bytes / literals)
+        }
+        // Allocation is linear in the number of literals: eight times as many literals cost at most half again as
+        // much per literal, where hashing or retaining tree nodes per occurrence would grow it.
+        assertThat(bytesPerLiteral.last()).isLessThanOrEqualTo(bytesPerLiteral.first() * 3 / 2)
+    }
+}
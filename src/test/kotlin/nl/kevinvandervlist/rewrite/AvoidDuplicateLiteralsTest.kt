@@ -118,6 +118,168 @@ class AvoidDuplicateLiteralsTest: JavaRecipeTest {
         """
     )
 
+    @Test
+    fun reuseExistingPrivateStaticFinalField() = assertChanged(
+        before = """
+            class Test {
+                private static final String GREETING = "hello";
+                public static boolean f(String p) {
+                    return p.equals("hello") || p.concat("hello").isEmpty();
+                }
+            }
+        """,
+        after = """
+            class Test {
+                private static final String GREETING = "hello";
+                public static boolean f(String p) {
+                    return p.equals(GREETING) || p.concat(GREETING).isEmpty();
+                }
+            }
+        """
+    )
+
+    @Test
+    fun avoidConflictWithLocalVariable() = assertChanged(
+        before = """
+            class Test {
+                public static boolean f(String p) {
+                    String FOO = p;
+                    return p.equals("foo") || FOO.concat("foo").isEmpty();
+                }
+            }
+        """,
+        after = """
+            class Test {
+                private static final String FOO_1 = "foo";
+                public static boolean f(String p) {
+                    String FOO = p;
+                    return p.equals(FOO_1) || FOO.concat(FOO_1).isEmpty();
+                }
+            }
+        """
+    )
+
+    @Test
+    fun constantsAreDeclaredInOrderOfFirstOccurrence() = assertChanged(
+        before = """
+            class Test {
+                public static boolean f(String p) {
+                    return p.equals("zulu") || p.equals("alpha") || p.equals("mike") ||
+                            p.equals("alpha") || p.equals("zulu") || p.equals("mike");
+                }
+            }
+        """,
+        after = """
+            class Test {
+                private static final String ZULU = "zulu";
+                private static final String ALPHA = "alpha";
+                private static final String MIKE = "mike";
+                public static boolean f(String p) {
+                    return p.equals(ZULU) || p.equals(ALPHA) || p.equals(MIKE) ||
+                            p.equals(ALPHA) || p.equals(ZULU) || p.equals(MIKE);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun nestedClassesHaveTheirOwnConstants() = assertChanged(
+        before = """
+            class Test {
+                static class Inner {
+                    boolean f(String p) {
+                        return p.equals("inner") || p.concat("inner").isEmpty();
+                    }
+                }
+                boolean g(String p) {
+                    return p.equals("outer") || p.concat("outer").isEmpty();
+                }
+            }
+        """,
+        after = """
+            class Test {
+                private static final String OUTER = "outer";
+                static class Inner {
+                    private static final String INNER = "inner";
+                    boolean f(String p) {
+                        return p.equals(INNER) || p.concat(INNER).isEmpty();
+                    }
+                }
+                boolean g(String p) {
+                    return p.equals(OUTER) || p.concat(OUTER).isEmpty();
+                }
+            }
+        """
+    )
+
+    @Test
+    fun nestedClassDoesNotShadowEnclosingField() = assertChanged(
+        before = """
+            class Test {
+                String INNER = "x";
+                static class Inner {
+                    boolean f(String p) {
+                        return p.equals("inner") || p.concat("inner").isEmpty();
+                    }
+                }
+            }
+        """,
+        after = """
+            class Test {
+                String INNER = "x";
+                static class Inner {
+                    private static final String INNER_1 = "inner";
+                    boolean f(String p) {
+                        return p.equals(INNER_1) || p.concat(INNER_1).isEmpty();
+                    }
+                }
+            }
+        """
+    )
+
+    @Test
+    fun singleLiteralIsUnchanged() = assertUnchanged(
+        before = """
+            class Test {
+                public static boolean f(String p) {
+                    return p.equals("foo") || p.equals("bar");
+                }
+            }
+        """
+    )
+
+    @Test
+    fun respectMinimumOccurrences() = assertUnchanged(
+        recipe = AvoidDuplicateLiterals(3, null),
+        before = """
+            class Test {
+                public static boolean f(String p) {
+                    return p.equals("foo") || p.concat("foo").isEmpty();
+                }
+            }
+        """
+    )
+
+    @Test
+    fun respectMinimumLength() = assertChanged(
+        recipe = AvoidDuplicateLiterals(null, 3),
+        before = """
+            class Test {
+                public static boolean f(String p) {
+                    return p.equals("ab") || p.concat("ab").isEmpty() || p.equals("abc") || p.concat("abc").isEmpty();
+                }
+            }
+        """,
+        after = """
+            class Test {
+                private static final String ABC = "abc";
+                public static boolean f(String p) {
+                    return p.equals("ab") || p.concat("ab").isEmpty() || p.equals(ABC) || p.concat(ABC).isEmpty();
+                }
+            }
+        """
+    )
+
     /**
      * This test is disabled because the current recipe does not take the pre-existing 'FOO'
      * property of the super class into account
@@ -0,0 +1,336 @@
+package nl.kevinvandervlist.rewrite
+
+import org.junit.jupiter.api.Test
+import org.openrewrite.Recipe
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.JavaRecipeTest
+
+class CollapseMapLookupsTest: JavaRecipeTest {
+    override val parser: JavaParser
+        get() = JavaParser.fromJavaVersion()
+            .logCompilationWarningsAndErrors(true)
+            .build()
+
+    override val recipe: Recipe
+        get() = CollapseMapLookups()
+
+    @Test
+    fun getOrDefault() = assertChanged(
+        before = """
+            import java.util.Map;
+
+            class Test {
+                String name(Map<String, String> names, String id) {
+                    return names.containsKey(id) ? names.get(id) : "unknown";
+                }
+            }
+        """,
+        after = """
+            import java.util.Map;
+
+            class Test {
+                String name(Map<String, String> names, String id) {
+                    return names.getOrDefault(id, "unknown");
+                }
+            }
+        """
+    )
+
+    @Test
+    fun getOnceAndCheckForNull() = assertChanged(
+        before = """
+            import java.util.Map;
+            import java.util.concurrent.ConcurrentHashMap;
+
+            class Test {
+                void print(Map<String, String> names, ConcurrentHashMap<String, String> cache, String id) {
+                    if (names.containsKey(id)) {
+                        String name = names.get(id);
+                        System.out.println(name);
+                    }
+                    if (cache.containsKey(id)) {
+                        String cached = cache.get(id);
+                        System.out.println(cached);
+                    }
+                }
+            }
+        """,
+        after = """
+            import java.util.Map;
+            import java.util.concurrent.ConcurrentHashMap;
+
+            class Test {
+                void print(Map<String, String> names, ConcurrentHashMap<String, String> cache, String id) {
+                    String name = names.get(id);
+                    if (name != null || names.containsKey(id)) {
+                        System.out.println(name);
+                    }
+                    String cached = cache.get(id);
+                    if (cached != null) {
+                        System.out.println(cached);
+                    }
+                }
+            }
+        """
+    )
+
+    @Test
+    fun computeIfAbsentAndMerge() = assertChanged(
+        before = """
+            import java.util.ArrayList;
+            import java.util.List;
+            import java.util.Map;
+
+            class Test {
+                void add(Map<String, List<String>> groups, Map<String, Integer> counts, String group, String name) {
+                    if (!groups.containsKey(group)) {
+                        groups.put(group, new ArrayList<>());
+                    }
+                    groups.get(group).add(name);
+                    counts.put(group, counts.getOrDefault(group, 0) + 1);
+                }
+            }
+        """,
+        after = """
+            import java.util.ArrayList;
+            import java.util.List;
+            import java.util.Map;
+
+            class Test {
+                void add(Map<String, List<String>> groups, Map<String, Integer> counts, String group, String name) {
+                    groups.computeIfAbsent(group, key -> new ArrayList<>()).add(name);
+                    counts.merge(group, 1, Integer::sum);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun mergeIfPresent() = assertChanged(
+        before = """
+            import java.util.Map;
+
+            class Test {
+                void add(Map<String, Integer> counts, String group) {
+                    if (counts.containsKey(group)) {
+                        counts.put(group, counts.get(group) + 1);
+                    } else {
+                        counts.put(group, 1);
+                    }
+                }
+            }
+        """,
+        after = """
+            import java.util.Map;
+
+            class Test {
+                void add(Map<String, Integer> counts, String group) {
+                    counts.merge(group, 1, Integer::sum);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun putIfAbsentForMapsThatRejectNull() = assertChanged(
+        before = """
+            import java.util.concurrent.ConcurrentHashMap;
+
+            class Test {
+                void add(ConcurrentHashMap<String, String> names, String id, String name) {
+                    if (!names.containsKey(id)) {
+                        names.put(id, name);
+                    }
+                }
+            }
+        """,
+        after = """
+            import java.util.concurrent.ConcurrentHashMap;
+
+            class Test {
+                void add(ConcurrentHashMap<String, String> names, String id, String name) {
+                    names.putIfAbsent(id, name);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun computeIfAbsentForMapsThatRejectNull() = assertChanged(
+        before = """
+            import java.util.ArrayList;
+            import java.util.List;
+            import java.util.concurrent.ConcurrentMap;
+
+            class Test {
+                void add(ConcurrentMap<String, List<String>> groups, String group) {
+                    if (!groups.containsKey(group)) {
+                        groups.put(group, new ArrayList<>());
+                    }
+                }
+            }
+        """,
+        after = """
+            import java.util.ArrayList;
+            import java.util.List;
+            import java.util.concurrent.ConcurrentMap;
+
+            class Test {
+                void add(ConcurrentMap<String, List<String>> groups, String group) {
+                    groups.computeIfAbsent(group, key -> new ArrayList<>());
+                }
+            }
+        """
+    )
+
+    @Test
+    fun mergeLongAndDoubleCounts() = assertChanged(
+        before = """
+            import java.util.Map;
+
+            class Test {
+                void add(Map<String, Long> counts, Map<String, Double> totals, String group, double amount) {
+                    counts.put(group, counts.getOrDefault(group, 0L) + 1);
+                    totals.put(group, totals.getOrDefault(group, 0.0) + 1);
+                    totals.put(group, totals.getOrDefault(group, 0.0) + amount);
+                }
+            }
+        """,
+        after = """
+            import java.util.Map;
+
+            class Test {
+                void add(Map<String, Long> counts, Map<String, Double> totals, String group, double amount) {
+                    counts.merge(group, 1L, Long::sum);
+                    totals.merge(group, 1.0, Double::sum);
+                    totals.merge(group, amount, Double::sum);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun doNotHideFieldWithMovedVariable() = assertUnchanged(
+        before = """
+            import java.util.Map;
+
+            class Test {
+                private String name = "default";
+
+                void print(Map<String, String> names, String id) {
+                    if (names.containsKey(id)) {
+                        String name = names.get(id);
+                        System.out.println(name);
+                    }
+                    System.out.println(name);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun iterateEntries() = assertChanged(
+        before = """
+            import java.util.Map;
+
+            class Test {
+                void print(Map<String, Integer> counts) {
+                    for (String name : counts.keySet()) {
+                        System.out.println(name + "=" + counts.get(name));
+                    }
+                }
+            }
+        """,
+        after = """
+            import java.util.Map;
+
+            class Test {
+                void print(Map<String, Integer> counts) {
+                    for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                        String name = entry.getKey();
+                        System.out.println(name + "=" + entry.getValue());
+                    }
+                }
+            }
+        """
+    )
+
+    @Test
+    fun iterateEntriesWithWiderKey() = assertChanged(
+        before = """
+            import java.util.Map;
+
+            class Test {
+                void print(Map<String, Integer> counts) {
+                    for (Object name : counts.keySet()) {
+                        System.out.println(name + "=" + counts.get(name));
+                    }
+                }
+            }
+        """,
+        after = """
+            import java.util.Map;
+
+            class Test {
+                void print(Map<String, Integer> counts) {
+                    for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                        Object name = entry.getKey();
+                        System.out.println(name + "=" + entry.getValue());
+                    }
+                }
+            }
+        """
+    )
+
+    @Test
+    fun iterateEntriesWithInferredKey() = assertChanged(
+        before = """
+            import java.util.Map;
+
+            class Test {
+                void print(Map<String, Integer> counts) {
+                    for (var name : counts.keySet()) {
+                        System.out.println(name + "=" + counts.get(name));
+                    }
+                }
+            }
+        """,
+        after = """
+            import java.util.Map;
+
+            class Test {
+                void print(Map<String, Integer> counts) {
+                    for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                        var name = entry.getKey();
+                        System.out.println(name + "=" + entry.getValue());
+                    }
+                }
+            }
+        """
+    )
+
+    @Test
+    fun leaveUnsafeLookupsAlone() = assertUnchanged(
+        before = """
+            import java.util.ArrayList;
+            import java.util.List;
+            import java.util.Map;
+
+            class Test {
+                void add(Map<String, List<String>> groups, Map<String, Integer> counts, String group, List<String> names) {
+                    if (!groups.containsKey(group)) {
+                        groups.put(group, names);
+                    }
+                    if (counts.containsKey(group)) {
+                        int count = counts.get(group);
+                        System.out.println(count);
+                    }
+                    for (String name : counts.keySet()) {
+                        counts.remove(name);
+                        System.out.println(counts.get(name));
+                    }
+                }
+            }
+        """
+    )
+}
@@ -0,0 +1,135 @@
+package nl.kevinvandervlist.rewrite
+
+import org.junit.jupiter.api.Test
+import org.openrewrite.Recipe
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.JavaRecipeTest
+
+class ConsolidateDuplicateLiteralsTest: JavaRecipeTest {
+    override val parser: JavaParser
+        get() = JavaParser.fromJavaVersion()
+            .logCompilationWarningsAndErrors(true)
+            .build()
+
+    override val recipe: Recipe
+        get() = ConsolidateDuplicateLiterals("src/main/java", "com.example", "Constants", 3, null)
+
+    @Test
+    fun moveFrequentLiteralsToConstantsClass() = assertChanged(
+        before = """
+            package com.example.app;
+
+            import java.util.Map;
+
+            class Test {
+                void f(Map<String, String> headers) {
+                    headers.put("X-Request-Id", "a");
+                    headers.get("X-Request-Id");
+                    headers.remove("X-Request-Id");
+                }
+            }
+        """,
+        after = """
+            package com.example.app;
+
+            import java.util.Map;
+
+            import static com.example.Constants.X_REQUEST_ID;
+
+            class Test {
+                void f(Map<String, String> headers) {
+                    headers.put(X_REQUEST_ID, "a");
+                    headers.get(X_REQUEST_ID);
+                    headers.remove(X_REQUEST_ID);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun infrequentLiteralsAreUnchanged() = assertUnchanged(
+        before = """
+            package com.example.app;
+
+            import java.util.Map;
+
+            class Test {
+                void f(Map<String, String> headers) {
+                    headers.put("X-Request-Id", "a");
+                    headers.get("X-Request-Id");
+                }
+            }
+        """
+    )
+
+    @Test
+    fun doNotShadowLocalVariables() = assertUnchanged(
+        before = """
+            package com.example.app;
+
+            import java.util.Map;
+
+            class Test {
+                void f(Map<String, String> headers) {
+                    String X_REQUEST_ID = "X-Request-Id";
+                    headers.get("X-Request-Id");
+                    headers.remove("X-Request-Id");
+                }
+            }
+        """
+    )
+
+    @Test
+    fun leaveExistingConstantsAlone() = assertChanged(
+        before = """
+            package com.example.app;
+
+            import java.util.Map;
+
+            class Test {
+                private static final String HEADER = "X-Request-Id";
+
+                void f(Map<String, String> headers) {
+                    headers.get("X-Request-Id");
+                    headers.remove("X-Request-Id");
+                    headers.containsKey("X-Request-Id");
+                }
+            }
+        """,
+        after = """
+            package com.example.app;
+
+            import java.util.Map;
+
+            import static com.example.Constants.X_REQUEST_ID;
+
+            class Test {
+                private static final String HEADER = "X-Request-Id";
+
+                void f(Map<String, String> headers) {
+                    headers.get(X_REQUEST_ID);
+                    headers.remove(X_REQUEST_ID);
+                    headers.containsKey(X_REQUEST_ID);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun existingConstantsDoNotCount() = assertUnchanged(
+        before = """
+            package com.example.app;
+
+            import java.util.Map;
+
+            class Test {
+                private static final String HEADER = "X-Request-Id";
+
+                void f(Map<String, String> headers) {
+                    headers.get("X-Request-Id");
+                    headers.remove("X-Request-Id");
+                }
+            }
+        """
+    )
+}
@@ -0,0 +1,182 @@
+package nl.kevinvandervlist.rewrite
+
+import org.junit.jupiter.api.Test
+import org.openrewrite.Recipe
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.JavaRecipeTest
+
+class HoistRegexPatternsTest: JavaRecipeTest {
+    override val parser: JavaParser
+        get() = JavaParser.fromJavaVersion()
+            .logCompilationWarningsAndErrors(true)
+            .build()
+
+    override val recipe: Recipe
+        get() = HoistRegexPatterns()
+
+    @Test
+    fun hoistRegexLiterals() = assertChanged(
+        before = """
+            import java.util.regex.Pattern;
+
+            class Test {
+                boolean valid(String s) {
+                    return Pattern.compile("[a-z]+").matcher(s).matches() && s.matches("[a-z]+");
+                }
+                String[] fields(String s) {
+                    return s.split(",\\s*");
+                }
+                String normalize(String s) {
+                    return s.replaceAll("[ \\t]+", " ");
+                }
+            }
+        """,
+        after = """
+            import java.util.regex.Pattern;
+
+            class Test {
+                private static final Pattern A_Z_PATTERN = Pattern.compile("[a-z]+");
+                private static final Pattern S_PATTERN = Pattern.compile(",\\s*");
+                private static final Pattern T_PATTERN = Pattern.compile("[ \\t]+");
+                boolean valid(String s) {
+                    return A_Z_PATTERN.matcher(s).matches() && A_Z_PATTERN.matcher(s).matches();
+                }
+                String[] fields(String s) {
+                    return S_PATTERN.split(s);
+                }
+                String normalize(String s) {
+                    return T_PATTERN.matcher(s).replaceAll(" ");
+                }
+            }
+        """
+    )
+
+    @Test
+    fun addImportAndAvoidNameConflicts() = assertChanged(
+        before = """
+            class Test {
+                private final String A_B_PATTERN = "taken";
+                String first(String s) {
+                    return s.replaceFirst("a|b", "");
+                }
+                String[] parts(String s, int limit) {
+                    return s.split("a|b", limit);
+                }
+            }
+        """,
+        after = """
+            import java.util.regex.Pattern;
+
+            class Test {
+                private static final Pattern A_B_PATTERN_1 = Pattern.compile("a|b");
+                private final String A_B_PATTERN = "taken";
+                String first(String s) {
+                    return A_B_PATTERN_1.matcher(s).replaceFirst("");
+                }
+                String[] parts(String s, int limit) {
+                    return A_B_PATTERN_1.split(s, limit);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun reuseExistingPattern() = assertChanged(
+        before = """
+            import java.util.regex.Pattern;
+
+            class Test {
+                private static final Pattern DIGITS = Pattern.compile("[0-9]+");
+                boolean isNumber(String s) {
+                    return s.matches("[0-9]+");
+                }
+            }
+        """,
+        after = """
+            import java.util.regex.Pattern;
+
+            class Test {
+                private static final Pattern DIGITS = Pattern.compile("[0-9]+");
+                boolean isNumber(String s) {
+                    return DIGITS.matcher(s).matches();
+                }
+            }
+        """
+    )
+
+    @Test
+    fun doNotReusePatternAssignedAfterStaticInitialization() = assertChanged(
+        before = """
+            import java.util.regex.Pattern;
+
+            class Test {
+                private static final boolean DEFAULT = isLower("abc");
+                private static final Pattern LOWER = Pattern.compile("[a-z]+");
+                static boolean isLower(String s) {
+                    return s.matches("[a-z]+");
+                }
+            }
+        """,
+        after = """
+            import java.util.regex.Pattern;
+
+            class Test {
+                private static final Pattern A_Z_PATTERN = Pattern.compile("[a-z]+");
+                private static final boolean DEFAULT = isLower("abc");
+                private static final Pattern LOWER = Pattern.compile("[a-z]+");
+                static boolean isLower(String s) {
+                    return A_Z_PATTERN.matcher(s).matches();
+                }
+            }
+        """
+    )
+
+    @Test
+    fun leaveSplitFastPathAlone() = assertUnchanged(
+        before = """
+            class Test {
+                String[] parts(String s) {
+                    String[] commas = s.split(",");
+                    String[] dots = s.split("\\.");
+                    return s.split(";", 2);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun leaveInvalidAndNonConstantRegexesAlone() = assertUnchanged(
+        before = """
+            class Test {
+                boolean matches(String s, String regex) {
+                    return s.matches(regex) || s.matches("[unclosed");
+                }
+            }
+        """
+    )
+
+    @Test
+    fun declareInEnclosingClassOfInnerClass() = assertChanged(
+        before = """
+            class Test {
+                class Inner {
+                    boolean blank(String s) {
+                        return s.matches("\\s*");
+                    }
+                }
+            }
+        """,
+        after = """
+            import java.util.regex.Pattern;
+
+            class Test {
+                private static final Pattern S_PATTERN = Pattern.compile("\\s*");
+                class Inner {
+                    boolean blank(String s) {
+                        return S_PATTERN.matcher(s).matches();
+                    }
+                }
+            }
+        """
+    )
+}
@@ -0,0 +1,61 @@
+package nl.kevinvandervlist.rewrite
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.ExecutionContext
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.java.JavaIsoVisitor
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.tree.J
+
+class JavaTemplateCacheTest {
+    private val parser: JavaParser = JavaParser.fromJavaVersion().build()
+
+    private class AddField : JavaIsoVisitor<ExecutionContext>() {
+        override fun visitClassDeclaration(classDecl: J.ClassDeclaration, p: ExecutionContext): J.ClassDeclaration =
+            classDecl.withBody(JavaTemplateCache.apply(KEY, cursor, classDecl.body, classDecl.body.coordinates.lastStatement()))
+
+        companion object {
+            val KEY: JavaTemplateCache.Key = JavaTemplateCache.key("private int added;")
+        }
+    }
+
+    @Test
+    fun templateIsSharedAcrossVisitorInstances() {
+        val cu = parser.parse("class Test {\n}")[0]
+
+        val first = AddField().visit(cu, InMemoryExecutionContext()) as J.CompilationUnit
+        val hits = JavaTemplateCache.hits()
+        val second = AddField().visit(cu, InMemoryExecutionContext()) as J.CompilationUnit
+
+        assertThat(JavaTemplateCache.hits()).isGreaterThan(hits)
+        assertThat(second.printAll()).isEqualTo(first.printAll())
+        assertThat(second.printAll()).contains("private int added;")
+        assertThat(JavaTemplateCache.size()).isLessThanOrEqualTo(JavaTemplateCache.MAX_SIZE)
+    }
+
+    @Test
+    fun templatesAreCachedPerThread() {
+        val cu = parser.parse("class Test {\n}")[0]
+        val expected = (AddField().visit(cu, InMemoryExecutionContext()) as J.CompilationUnit).printAll()
+
+        val misses = JavaTemplateCache.misses()
+        val printed = arrayOfNulls<String>(1)
+        val thread = Thread {
+            printed[0] = (AddField().visit(cu, InMemoryExecutionContext()) as J.CompilationUnit).printAll()
+        }
+        thread.start()
+        thread.join()
+
+        assertThat(JavaTemplateCache.misses()).isGreaterThan(misses)
+        assertThat(printed[0]).isEqualTo(expected)
+    }
+
+    @Test
+    fun keysAreEqualBySnippetAndImports() {
+        assertThat(JavaTemplateCache.key("new ArrayList<>()", "java.util.ArrayList"))
+            .isEqualTo(JavaTemplateCache.key("new ArrayList<>()", "java.util.ArrayList"))
+        assertThat(JavaTemplateCache.key("new ArrayList<>()", "java.util.ArrayList"))
+            .isNotEqualTo(JavaTemplateCache.key("new ArrayList<>()"))
+    }
+}
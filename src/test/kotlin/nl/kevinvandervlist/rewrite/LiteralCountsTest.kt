@@ -0,0 +1,37 @@
+package nl.kevinvandervlist.rewrite
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+
+class LiteralCountsTest {
+
+    @Test
+    fun countInMemory() {
+        LiteralCounts(1024L * 1024L).use { counts ->
+            counts.add("foo")
+            counts.add("foo")
+            counts.add("bar")
+            assertThat(counts.hasSpilled()).isFalse()
+            assertThat(counts.count("foo")).isEqualTo(2)
+            assertThat(counts.count("bar")).isEqualTo(1)
+            assertThat(counts.count("baz")).isEqualTo(0)
+        }
+    }
+
+    @Test
+    fun countsSurviveSpillingToDisk() {
+        LiteralCounts(1024).use { counts ->
+            for (i in 0 until 5000) {
+                counts.add("value$i")
+            }
+            for (i in 0 until 5000 step 2) {
+                counts.add("value$i")
+            }
+            assertThat(counts.hasSpilled()).isTrue()
+            assertThat(counts.count("value0")).isEqualTo(2)
+            assertThat(counts.count("value1")).isEqualTo(1)
+            assertThat(counts.count("value4998")).isEqualTo(2)
+            assertThat(counts.count("absent")).isEqualTo(0)
+        }
+    }
+}
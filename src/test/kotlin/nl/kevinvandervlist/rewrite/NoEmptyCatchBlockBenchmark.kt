@@ -0,0 +1,60 @@
+package nl.kevinvandervlist.rewrite
+
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable
+import org.openrewrite.ExecutionContext
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.java.JavaIsoVisitor
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.JavaTemplate
+import org.openrewrite.java.tree.J
+
+/**
+ * Compares filling empty catch blocks through a `JavaTemplate`, as `NoEmptyCatchBlock` used to, with the
+ * statements that the recipe now builds directly.
+ *
+ * Run with `BENCHMARK=true ./gradlew test --tests '*Benchmark'`.
+ */
+@EnabledIfEnvironmentVariable(named = "BENCHMARK", matches = "true")
+class NoEmptyCatchBlockBenchmark {
+    private val parser: JavaParser = JavaParser.fromJavaVersion().build()
+
+    private fun source(catches: Int): String {
+        val tries = (0 until catches).joinToString("\n") { i ->
+            "        try { f$i(); } catch (RuntimeException e) {\n        }"
+        }
+        val methods = (0 until catches).joinToString("\n") { i -> "    void f$i() {}" }
+        return "class Test {\n    void f() {\n$tries\n    }\n$methods\n}"
+    }
+
+    private class TemplateInsertion : JavaIsoVisitor<ExecutionContext>() {
+        private val printStackTrace = JavaTemplate.builder({ cursor }, "#{any(java.lang.Exception)}.printStackTrace()").build()
+
+        override fun visitCatch(_catch: J.Try.Catch, p: ExecutionContext): J.Try.Catch {
+            val body = _catch.body
+            if (body.statements.isNotEmpty()) {
+                return super.visitCatch(_catch, p)
+            }
+            val exception = _catch.parameter.tree.variables[0].name
+            return super.visitCatch(_catch.withBody(
+                body.withTemplate(printStackTrace, body.coordinates.firstStatement(), exception)), p)
+        }
+    }
+
+    private fun time(block: () -> Unit): Long {
+        val start = System.nanoTime()
+        block()
+        return (System.nanoTime() - start) / 1_000_000
+    }
+
+    @Test
+    fun directConstructionAgainstTemplate() {
+        for (catches in listOf(10, 100, 1000)) {
+            val cu = parser.parse(source(catches))[0]
+            parser.reset()
+            val template = time { TemplateInsertion().visit(cu, InMemoryExecutionContext()) }
+            val direct = time { NoEmptyCatchBlock().run(listOf(cu), InMemoryExecutionContext()) }
+            println("catches=$catches template=${template}ms direct=${direct}ms")
+        }
+    }
+}
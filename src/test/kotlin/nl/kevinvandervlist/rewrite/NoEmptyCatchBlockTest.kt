@@ -1,5 +1,6 @@
 package nl.kevinvandervlist.rewrite
 
+import org.assertj.core.api.Assertions.assertThat
 import org.junit.jupiter.api.Test
 import org.openrewrite.Recipe
 import org.openrewrite.java.JavaParser
@@ -85,4 +86,106 @@ class NoEmptyCatchBlockTest: JavaRecipeTest {
                 }
             }"""
     )
+
+    @Test
+    fun logToStaticLoggerField() = assertChanged(
+        parser = JavaParser.fromJavaVersion()
+            .dependsOn("package org.slf4j; public interface Logger { void error(String msg, Throwable t); }")
+            .build(),
+        recipe = NoEmptyCatchBlock("logger"),
+        before = """
+            import org.slf4j.Logger;
+
+            class TestClass {
+                private static final Logger LOG = null;
+
+                public void foo() {
+                    try {
+                        System.out.println("Foo");
+                    } catch (RuntimeException e) {
+                    }
+                }
+            }""",
+        after = """
+            import org.slf4j.Logger;
+
+            class TestClass {
+                private static final Logger LOG = null;
+
+                public void foo() {
+                    try {
+                        System.out.println("Foo");
+                    } catch (RuntimeException e) {
+                        LOG.error(e.getMessage(), e);
+                    }
+                }
+            }"""
+    )
+
+    @Test
+    fun printStackTraceWithoutLoggerField() = assertChanged(
+        recipe = NoEmptyCatchBlock("logger"),
+        before = """
+            class TestClass {
+                public void foo() {
+                    try {
+                        System.out.println("Foo");
+                    } catch (RuntimeException e) {
+                    }
+                }
+            }""",
+        after = """
+            class TestClass {
+                public void foo() {
+                    try {
+                        System.out.println("Foo");
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }"""
+    )
+
+    @Test
+    fun rethrowOnlyUncheckedExceptions() = assertChanged(
+        recipe = NoEmptyCatchBlock("rethrow"),
+        before = """
+            import java.io.IOException;
+
+            class TestClass {
+                public void foo() {
+                    try {
+                        bar();
+                    } catch (IllegalStateException e) {
+                    } catch (IOException e) {
+                    }
+                }
+
+                private void bar() throws IOException {
+                }
+            }""",
+        after = """
+            import java.io.IOException;
+
+            class TestClass {
+                public void foo() {
+                    try {
+                        bar();
+                    } catch (IllegalStateException e) {
+                        throw e;
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+
+                private void bar() throws IOException {
+                }
+            }"""
+    )
+
+    @Test
+    fun rejectUnknownHandler() {
+        assertThat(NoEmptyCatchBlock("logger").validate().isValid).isTrue
+        assertThat(NoEmptyCatchBlock("loger").validate().isInvalid).isTrue
+    }
 }
@@ -0,0 +1,275 @@
+package nl.kevinvandervlist.rewrite
+
+import org.junit.jupiter.api.Test
+import org.openrewrite.Recipe
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.JavaRecipeTest
+
+class ParameterizedLoggingTest: JavaRecipeTest {
+    override val parser: JavaParser
+        get() = JavaParser.fromJavaVersion()
+            .logCompilationWarningsAndErrors(true)
+            .dependsOn(
+                """
+                package org.slf4j;
+                public interface Marker {}
+                """,
+                """
+                package org.slf4j;
+                public interface Logger {
+                    boolean isDebugEnabled();
+                    boolean isDebugEnabled(Marker marker);
+                    boolean isInfoEnabled();
+                    void debug(String msg);
+                    void debug(String format, Object arg);
+                    void debug(String format, Object arg1, Object arg2);
+                    void debug(String format, Object... arguments);
+                    void debug(Marker marker, String format, Object arg);
+                    void info(String msg);
+                    void info(String format, Object arg);
+                    void error(String msg, Throwable t);
+                    void error(String format, Object arg1, Object arg2);
+                }
+                """
+            )
+            .build()
+
+    override val recipe: Recipe
+        get() = ParameterizedLogging()
+
+    @Test
+    fun parameterizeConcatenatedMessage() = assertChanged(
+        before = """
+            import org.slf4j.Logger;
+
+            class Test {
+                private static final Logger LOG = null;
+
+                void log(int x, String y, int a, int b) {
+                    LOG.debug("x=" + x + " y=" + y);
+                    LOG.debug("sum=" + (a + b) + ", " + ("a" + a));
+                }
+            }
+        """,
+        after = """
+            import org.slf4j.Logger;
+
+            class Test {
+                private static final Logger LOG = null;
+
+                void log(int x, String y, int a, int b) {
+                    LOG.debug("x={} y={}", x, y);
+                    LOG.debug("sum={}, a{}", (a + b), a);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun keepExceptionLast() = assertChanged(
+        before = """
+            import org.slf4j.Logger;
+
+            class Test {
+                private static final Logger LOG = null;
+
+                void log(String id, RuntimeException e) {
+                    LOG.error("Failed for " + id, e);
+                }
+            }
+        """,
+        after = """
+            import org.slf4j.Logger;
+
+            class Test {
+                private static final Logger LOG = null;
+
+                void log(String id, RuntimeException e) {
+                    LOG.error("Failed for {}", id, e);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun leaveParameterizedAndAmbiguousMessagesAlone() = assertUnchanged(
+        before = """
+            import org.slf4j.Logger;
+
+            class Test {
+                private static final Logger LOG = null;
+
+                void log(String id, RuntimeException e, int[] values) {
+                    LOG.info("Id {}", id);
+                    LOG.info("Plain message");
+                    LOG.info("Literal {} " + id);
+                    LOG.info("Failed with " + e);
+                    LOG.info("Values " + values);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun guardExpensiveArguments() = assertChanged(
+        recipe = ParameterizedLogging(true),
+        before = """
+            import org.slf4j.Logger;
+
+            class Test {
+                private static final Logger LOG = null;
+
+                void log(String id) {
+                    LOG.debug("Id " + id);
+                    LOG.debug("Size " + compute());
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Size {}", compute());
+                    }
+                }
+
+                int compute() {
+                    return 0;
+                }
+            }
+        """,
+        after = """
+            import org.slf4j.Logger;
+
+            class Test {
+                private static final Logger LOG = null;
+
+                void log(String id) {
+                    LOG.debug("Id {}", id);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Size {}", compute());
+                    }
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Size {}", compute());
+                    }
+                }
+
+                int compute() {
+                    return 0;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun guardWithMarker() = assertChanged(
+        recipe = ParameterizedLogging(true),
+        before = """
+            import org.slf4j.Logger;
+            import org.slf4j.Marker;
+
+            class Test {
+                private static final Logger LOG = null;
+
+                void log(Marker marker) {
+                    LOG.debug(marker, "Size {}", compute());
+                }
+
+                int compute() {
+                    return 0;
+                }
+            }
+        """,
+        after = """
+            import org.slf4j.Logger;
+            import org.slf4j.Marker;
+
+            class Test {
+                private static final Logger LOG = null;
+
+                void log(Marker marker) {
+                    if (LOG.isDebugEnabled(marker)) {
+                        LOG.debug(marker, "Size {}", compute());
+                    }
+                }
+
+                int compute() {
+                    return 0;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun guardOutsideLevelChecks() = assertChanged(
+        recipe = ParameterizedLogging(true),
+        before = """
+            import org.slf4j.Logger;
+
+            class Test {
+                private static final Logger LOG = null;
+                private static final Logger OTHER = null;
+
+                void log(Feature feature) {
+                    if (feature.isEnabled()) {
+                        LOG.debug("Size {}", compute());
+                    }
+                    if (LOG.isInfoEnabled()) {
+                        LOG.debug("Size {}", compute());
+                    }
+                    if (OTHER.isDebugEnabled()) {
+                        LOG.debug("Size {}", compute());
+                    }
+                    if (LOG.isDebugEnabled()) {
+                        System.out.println();
+                    } else {
+                        LOG.debug("Size {}", compute());
+                    }
+                }
+
+                int compute() {
+                    return 0;
+                }
+
+                interface Feature {
+                    boolean isEnabled();
+                }
+            }
+        """,
+        after = """
+            import org.slf4j.Logger;
+
+            class Test {
+                private static final Logger LOG = null;
+                private static final Logger OTHER = null;
+
+                void log(Feature feature) {
+                    if (feature.isEnabled()) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Size {}", compute());
+                        }
+                    }
+                    if (LOG.isInfoEnabled()) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Size {}", compute());
+                        }
+                    }
+                    if (OTHER.isDebugEnabled()) {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Size {}", compute());
+                        }
+                    }
+                    if (LOG.isDebugEnabled()) {
+                        System.out.println();
+                    } else {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug("Size {}", compute());
+                        }
+                    }
+                }
+
+                int compute() {
+                    return 0;
+                }
+
+                interface Feature {
+                    boolean isEnabled();
+                }
+            }
+        """
+    )
+}
@@ -0,0 +1,79 @@
+package nl.kevinvandervlist.rewrite
+
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordingFile
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.openrewrite.ExecutionContext
+import org.openrewrite.InMemoryExecutionContext
+import org.openrewrite.java.JavaIsoVisitor
+import org.openrewrite.java.JavaParser
+import java.nio.file.Files
+
+class RecipePhaseEventTest {
+
+    @Test
+    fun recordPhasesOfAvoidDuplicateLiterals() {
+        val cu = JavaParser.fromJavaVersion().build().parse("""
+            class Test {
+                boolean f(String p) {
+                    return p.equals("foo") || p.concat("foo").isEmpty();
+                }
+            }
+        """.trimIndent())[0]
+
+        val file = Files.createTempFile("recipe-phases", ".jfr")
+        try {
+            Recording().use { recording ->
+                recording.enable(RecipePhaseEvent.NAME)
+                recording.start()
+                AvoidDuplicateLiterals().run(listOf(cu), InMemoryExecutionContext())
+                recording.stop()
+                recording.dump(file)
+            }
+
+            val events = RecordingFile.readAllEvents(file)
+                .filter { it.eventType.name == RecipePhaseEvent.NAME }
+            assertThat(events).isNotEmpty
+            assertThat(events.map { it.getString("recipe") }.distinct())
+                .containsExactly(AvoidDuplicateLiterals::class.java.name)
+            assertThat(events.map { it.getString("phase") })
+                .contains("APPLICABILITY", "ANALYSIS", "TEMPLATE")
+            assertThat(events.map { it.getString("sourcePath") })
+                .allMatch { it.endsWith("Test.java") }
+            assertThat(events.first { it.getString("phase") == "TEMPLATE" }.getInt("nodes"))
+                .isEqualTo(1)
+        } finally {
+            Files.deleteIfExists(file)
+        }
+    }
+
+    @Test
+    fun profiledVisitsCountNodes() {
+        val cu = JavaParser.fromJavaVersion().build().parse("""
+            class Test {
+                void f() {
+                }
+            }
+        """.trimIndent())[0]
+
+        val file = Files.createTempFile("recipe-phases", ".jfr")
+        try {
+            Recording().use { recording ->
+                recording.enable(RecipePhaseEvent.NAME)
+                recording.start()
+                RecipePhaseEvent.profile("test", RecipePhaseEvent.Phase.REWRITE, JavaIsoVisitor<ExecutionContext>())
+                    .visit(cu, InMemoryExecutionContext())
+                recording.stop()
+                recording.dump(file)
+            }
+
+            val events = RecordingFile.readAllEvents(file)
+                .filter { it.eventType.name == RecipePhaseEvent.NAME }
+            assertThat(events).hasSize(1)
+            assertThat(events[0].getInt("nodes")).isGreaterThan(1)
+        } finally {
+            Files.deleteIfExists(file)
+        }
+    }
+}
@@ -37,4 +37,208 @@ class SnakeCaseToCamelCaseExceptWhenPublicTest: JavaRecipeTest {
             }
         """
     )
+
+    @Test
+    fun renameMultipleMethodsAndMethodReferences() = assertChanged(
+        before = """
+            import java.util.function.Supplier;
+
+            class TestClass {
+                String bar_bar() {
+                    return baz_baz();
+                }
+                protected String baz_baz() {
+                    Supplier<String> s = this::qux_qux;
+                    return s.get();
+                }
+                private String qux_qux() {
+                    return "qux";
+                }
+            }
+        """,
+        after = """
+            import java.util.function.Supplier;
+
+            class TestClass {
+                String barBar() {
+                    return bazBaz();
+                }
+                protected String bazBaz() {
+                    Supplier<String> s = this::quxQux;
+                    return s.get();
+                }
+                private String quxQux() {
+                    return "qux";
+                }
+            }
+        """
+    )
+
+    @Test
+    fun doNotRenameToExistingMethodName() = assertChanged(
+        before = """
+            class TestClass {
+                String fooBar() {
+                    return "foo";
+                }
+                private String foo_bar() {
+                    return fooBar();
+                }
+            }
+        """,
+        after = """
+            class TestClass {
+                String fooBar() {
+                    return "foo";
+                }
+                /*~~(Not renamed to fooBar, a method with that name already exists)~~>*/private String foo_bar() {
+                    return fooBar();
+                }
+            }
+        """
+    )
+
+    @Test
+    fun doNotRenameToInheritedMethodName() = assertChanged(
+        before = """
+            class Base {
+                protected String fooBar() {
+                    return "foo";
+                }
+            }
+            class TestClass extends Base {
+                String foo_bar() {
+                    return fooBar();
+                }
+            }
+        """,
+        after = """
+            class Base {
+                protected String fooBar() {
+                    return "foo";
+                }
+            }
+            class TestClass extends Base {
+                /*~~(Not renamed to fooBar, a method with that name already exists)~~>*/String foo_bar() {
+                    return fooBar();
+                }
+            }
+        """
+    )
+
+    @Test
+    fun renameOverloadsTogether() = assertChanged(
+        before = """
+            class TestClass {
+                private void do_it(int i) {
+                }
+                private void do_it(String s) {
+                    do_it(s.length());
+                }
+            }
+        """,
+        after = """
+            class TestClass {
+                private void doIt(int i) {
+                }
+                private void doIt(String s) {
+                    doIt(s.length());
+                }
+            }
+        """
+    )
+
+    @Test
+    fun renameOverrideAfterBase() = assertChanged(
+        before = """
+            class Base {
+                protected String foo_bar() {
+                    return "base";
+                }
+            }
+            class TestClass extends Base {
+                @Override
+                protected String foo_bar() {
+                    return "sub";
+                }
+            }
+        """,
+        after = """
+            class Base {
+                protected String fooBar() {
+                    return "base";
+                }
+            }
+            class TestClass extends Base {
+                @Override
+                protected String fooBar() {
+                    return "sub";
+                }
+            }
+        """
+    )
+
+    @Test
+    fun renameBaseAfterOverride() = assertChanged(
+        before = """
+            class TestClass extends Base {
+                @Override
+                protected String foo_bar() {
+                    return "sub";
+                }
+            }
+            class Base {
+                protected String foo_bar() {
+                    return "base";
+                }
+            }
+        """,
+        after = """
+            class TestClass extends Base {
+                @Override
+                protected String fooBar() {
+                    return "sub";
+                }
+            }
+            class Base {
+                protected String fooBar() {
+                    return "base";
+                }
+            }
+        """
+    )
+
+    @Test
+    fun doNotRenameOverrideWhenBaseConflicts() = assertChanged(
+        before = """
+            class Base {
+                protected String foo_bar() {
+                    return "base";
+                }
+                String fooBar() {
+                    return "existing";
+                }
+            }
+            class TestClass extends Base {
+                protected String foo_bar() {
+                    return "sub";
+                }
+            }
+        """,
+        after = """
+            class Base {
+                /*~~(Not renamed to fooBar, a method with that name already exists)~~>*/protected String foo_bar() {
+                    return "base";
+                }
+                String fooBar() {
+                    return "existing";
+                }
+            }
+            class TestClass extends Base {
+                /*~~(Not renamed to fooBar, a method with that name already exists)~~>*/protected String foo_bar() {
+                    return "sub";
+                }
+            }
+        """
+    )
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2021 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * https://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.openrewrite.starter
+
+import org.junit.jupiter.api.Test
+import org.openrewrite.Recipe
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.JavaRecipeTest
+
+class NoGuavaCollectionFactoriesTest: JavaRecipeTest {
+    override val parser: JavaParser
+        get() = JavaParser.fromJavaVersion()
+            .logCompilationWarningsAndErrors(true)
+            .classpath("guava")
+            .build()
+
+    override val recipe: Recipe
+        get() = NoGuavaCollectionFactories()
+
+    @Test
+    fun replaceWithNewHashSetOfCollection() = assertChanged(
+        before = """
+            import com.google.common.collect.Sets;
+            
+            import java.util.List;
+            import java.util.Set;
+            
+            class Test {
+                Set<Integer> copy(List<Integer> l) {
+                    return Sets.newHashSet(l);
+                }
+            }
+        """,
+        after = """
+            import java.util.HashSet;
+            import java.util.List;
+            import java.util.Set;
+            
+            class Test {
+                Set<Integer> copy(List<Integer> l) {
+                    return new HashSet<>(l);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun replaceWithNewLinkedList() = assertChanged(
+        before = """
+            import com.google.common.collect.Lists;
+            
+            import java.util.List;
+            
+            class Test {
+                List<Integer> l = Lists.newLinkedList();
+            }
+        """,
+        after = """
+            import java.util.LinkedList;
+            import java.util.List;
+            
+            class Test {
+                List<Integer> l = new LinkedList<>();
+            }
+        """
+    )
+
+    @Test
+    fun replaceWithPresizedHashMap() = assertChanged(
+        before = """
+            import com.google.common.collect.Maps;
+            
+            import java.util.Map;
+            
+            class Test {
+                Map<String, Integer> m(int size) {
+                    return Maps.newHashMapWithExpectedSize(size);
+                }
+            }
+        """,
+        after = """
+            import java.util.HashMap;
+            import java.util.Map;
+            
+            class Test {
+                Map<String, Integer> m(int size) {
+                    return new HashMap<>((int) (size / 0.75f) + 1);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun replaceWithConcurrentKeySet() = assertChanged(
+        before = """
+            import com.google.common.collect.Sets;
+            
+            import java.util.Set;
+            
+            class Test {
+                Set<String> s = Sets.newConcurrentHashSet();
+            }
+        """,
+        after = """
+            import java.util.Set;
+            import java.util.concurrent.ConcurrentHashMap;
+            
+            class Test {
+                Set<String> s = ConcurrentHashMap.newKeySet();
+            }
+        """
+    )
+
+    @Test
+    fun keepExpectedSizeOfCompoundExpression() = assertUnchanged(
+        before = """
+            import com.google.common.collect.Maps;
+            
+            import java.util.Map;
+            
+            class Test {
+                Map<String, Integer> m(int a, int b) {
+                    return Maps.newHashMapWithExpectedSize(a + b);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun keepCopyOfIterableThatIsNotACollection() = assertUnchanged(
+        before = """
+            import com.google.common.collect.Lists;
+            
+            import java.util.List;
+            
+            class Test {
+                List<Integer> copy(Iterable<Integer> i) {
+                    return Lists.newArrayList(i);
+                }
+            }
+        """
+    )
+}
@@ -15,10 +15,14 @@
  */
 package org.openrewrite.starter
 
+import org.assertj.core.api.Assertions.assertThat
 import org.junit.jupiter.api.Test
+import org.openrewrite.InMemoryExecutionContext
 import org.openrewrite.Recipe
 import org.openrewrite.java.JavaParser
 import org.openrewrite.java.JavaRecipeTest
+import org.openrewrite.java.tree.J
+import org.openrewrite.marker.SearchResult
 
 class NoGuavaListsNewArrayListTest: JavaRecipeTest {
     override val parser: JavaParser
@@ -97,4 +101,59 @@ class NoGuavaListsNewArrayListTest: JavaRecipeTest {
             }
         """
     )
+
+    @Test
+    fun replaceFullyQualifiedInvocation() = assertChanged(
+        before = """
+            import java.util.List;
+            
+            class Test {
+                List<Integer> cardinalsWorldSeries = com.google.common.collect.Lists.newArrayList();
+            }
+        """,
+        after = """
+            import java.util.ArrayList;
+            import java.util.List;
+            
+            class Test {
+                List<Integer> cardinalsWorldSeries = new ArrayList<>();
+            }
+        """
+    )
+
+    @Test
+    fun applicableOnlyToFilesThatReferToGuava() {
+        val applicableTest = NoGuavaListsNewArrayList().singleSourceApplicableTest!!
+        fun isApplicable(source: String): Boolean {
+            val cu = parser.parse(source.trimIndent())[0]
+            val visited = applicableTest.visit(cu, InMemoryExecutionContext()) as J.CompilationUnit
+            return visited.markers.findFirst(SearchResult::class.java).isPresent
+        }
+
+        assertThat(isApplicable("""
+            import com.google.common.collect.Lists;
+
+            class Test {
+            }
+        """)).isTrue
+        assertThat(isApplicable("""
+            class Test {
+                Object list = com.google.common.collect.Lists.newArrayList();
+            }
+        """)).isTrue
+        assertThat(isApplicable("""
+            import java.util.ArrayList;
+            import java.util.List;
+            
+            class Test {
+                static class Lists {
+                    static <T> List<T> newArrayList() {
+                        return new ArrayList<>();
+                    }
+                }
+            
+                List<Integer> cardinalsWorldSeries = Lists.newArrayList();
+            }
+        """)).isFalse
+    }
 }
@@ -0,0 +1,171 @@
+package org.openrewrite.starter
+
+import org.junit.jupiter.api.Test
+import org.openrewrite.Recipe
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.JavaRecipeTest
+
+class PresizeCollectionsTest: JavaRecipeTest {
+    override val parser: JavaParser
+        get() = JavaParser.fromJavaVersion()
+            .logCompilationWarningsAndErrors(true)
+            .build()
+
+    override val recipe: Recipe
+        get() = PresizeCollections()
+
+    @Test
+    fun presizeArrayListFilledFromCollection() = assertChanged(
+        before = """
+            import java.util.ArrayList;
+            import java.util.List;
+
+            class Test {
+                List<Integer> lengths(List<String> names) {
+                    List<Integer> lengths = new ArrayList<>();
+                    for (String name : names) {
+                        lengths.add(name.length());
+                    }
+                    return lengths;
+                }
+            }
+        """,
+        after = """
+            import java.util.ArrayList;
+            import java.util.List;
+
+            class Test {
+                List<Integer> lengths(List<String> names) {
+                    List<Integer> lengths = new ArrayList<>(names.size());
+                    for (String name : names) {
+                        lengths.add(name.length());
+                    }
+                    return lengths;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun presizeHashMapFilledFromArray() = assertChanged(
+        before = """
+            import java.util.HashMap;
+            import java.util.Map;
+
+            class Test {
+                Map<String, Integer> index(String[] names) {
+                    Map<String, Integer> index = new HashMap<>();
+                    for (String name : names) {
+                        index.put(name, name.length());
+                    }
+                    return index;
+                }
+            }
+        """,
+        after = """
+            import java.util.HashMap;
+            import java.util.Map;
+
+            class Test {
+                Map<String, Integer> index(String[] names) {
+                    Map<String, Integer> index = new HashMap<>((int) (names.length / 0.75f) + 1);
+                    for (String name : names) {
+                        index.put(name, name.length());
+                    }
+                    return index;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun presizeHashSetFilledInCountedLoop() = assertChanged(
+        before = """
+            import java.util.HashSet;
+            import java.util.Set;
+
+            class Test {
+                Set<Integer> squares(int[] values) {
+                    Set<Integer> squares = new HashSet<>();
+                    for (int i = 0; i < values.length; i++) {
+                        squares.add(values[i] * values[i]);
+                    }
+                    return squares;
+                }
+            }
+        """,
+        after = """
+            import java.util.HashSet;
+            import java.util.Set;
+
+            class Test {
+                Set<Integer> squares(int[] values) {
+                    Set<Integer> squares = new HashSet<>((int) (values.length / 0.75f) + 1);
+                    for (int i = 0; i < values.length; i++) {
+                        squares.add(values[i] * values[i]);
+                    }
+                    return squares;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun keepLoopWithBoundThatMayBeNegative() = assertUnchanged(
+        before = """
+            import java.util.ArrayList;
+            import java.util.List;
+
+            class Test {
+                List<Integer> range(int n) {
+                    List<Integer> range = new ArrayList<>();
+                    for (int i = 0; i < n; i++) {
+                        range.add(i);
+                    }
+                    return range;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun keepCollectionFilledConditionally() = assertUnchanged(
+        before = """
+            import java.util.ArrayList;
+            import java.util.List;
+
+            class Test {
+                List<String> nonEmpty(List<String> names) {
+                    List<String> nonEmpty = new ArrayList<>();
+                    for (String name : names) {
+                        if (!name.isEmpty()) {
+                            nonEmpty.add(name);
+                        }
+                    }
+                    return nonEmpty;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun keepLoopThatMayStopEarly() = assertUnchanged(
+        before = """
+            import java.util.ArrayList;
+            import java.util.List;
+
+            class Test {
+                List<String> untilEmpty(List<String> names) {
+                    List<String> result = new ArrayList<>();
+                    for (String name : names) {
+                        result.add(name);
+                        if (name.isEmpty()) {
+                            break;
+                        }
+                    }
+                    return result;
+                }
+            }
+        """
+    )
+}
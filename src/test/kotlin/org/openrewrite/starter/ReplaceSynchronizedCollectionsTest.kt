@@ -0,0 +1,189 @@
+package org.openrewrite.starter
+
+import org.junit.jupiter.api.Test
+import org.openrewrite.Recipe
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.JavaRecipeTest
+
+class ReplaceSynchronizedCollectionsTest: JavaRecipeTest {
+    override val parser: JavaParser
+        get() = JavaParser.fromJavaVersion()
+            .logCompilationWarningsAndErrors(true)
+            .build()
+
+    override val recipe: Recipe
+        get() = ReplaceSynchronizedCollections()
+
+    @Test
+    fun unsynchronizedLocals() = assertChanged(
+        before = """
+            import java.util.List;
+            import java.util.Vector;
+
+            class Test {
+                String join(List<String> names) {
+                    StringBuffer sb = new StringBuffer();
+                    Vector<String> seen = new Vector<>();
+                    for (String name : names) {
+                        if (!seen.contains(name)) {
+                            seen.add(name);
+                            sb.append(name).append(',');
+                        }
+                    }
+                    return sb.toString();
+                }
+            }
+        """,
+        after = """
+            import java.util.ArrayList;
+            import java.util.List;
+
+            class Test {
+                String join(List<String> names) {
+                    StringBuilder sb = new StringBuilder();
+                    ArrayList<String> seen = new ArrayList<>();
+                    for (String name : names) {
+                        if (!seen.contains(name)) {
+                            seen.add(name);
+                            sb.append(name).append(',');
+                        }
+                    }
+                    return sb.toString();
+                }
+            }
+        """
+    )
+
+    @Test
+    fun unwrapSynchronizedLocal() = assertChanged(
+        before = """
+            import java.util.Collections;
+            import java.util.HashMap;
+            import java.util.Map;
+
+            class Test {
+                int count(String name) {
+                    Map<String, Integer> counts = Collections.synchronizedMap(new HashMap<>());
+                    counts.put(name, 1);
+                    return counts.size();
+                }
+            }
+        """,
+        after = """
+            import java.util.HashMap;
+            import java.util.Map;
+
+            class Test {
+                int count(String name) {
+                    Map<String, Integer> counts = new HashMap<>();
+                    counts.put(name, 1);
+                    return counts.size();
+                }
+            }
+        """
+    )
+
+    @Test
+    fun leaveEscapingLocalsAlone() = assertUnchanged(
+        before = """
+            import java.util.List;
+            import java.util.Vector;
+
+            class Test {
+                List<String> names() {
+                    Vector<String> names = new Vector<>();
+                    names.add("a");
+                    return names;
+                }
+                void print() {
+                    StringBuffer sb = new StringBuffer();
+                    new Thread(() -> sb.append("a")).start();
+                    Vector<String> elements = new Vector<>();
+                    elements.addElement("a");
+                }
+            }
+        """
+    )
+
+    @Test
+    fun concurrentMapForSharedFields() = assertChanged(
+        before = """
+            import java.util.Collections;
+            import java.util.HashMap;
+            import java.util.Hashtable;
+            import java.util.Map;
+
+            class Test {
+                private final Map<String, Integer> cache = new Hashtable<>();
+                private final Map<String, Integer> sizes = Collections.synchronizedMap(new HashMap<>());
+
+                Integer get(String key) {
+                    return cache.get(key);
+                }
+
+                Integer size() {
+                    return sizes.computeIfAbsent("total", k -> 0);
+                }
+            }
+        """,
+        after = """
+            import java.util.Map;
+            import java.util.concurrent.ConcurrentHashMap;
+
+            class Test {
+                private final Map<String, Integer> cache = new ConcurrentHashMap<>();
+                private final Map<String, Integer> sizes = new ConcurrentHashMap<>();
+
+                Integer get(String key) {
+                    return cache.get(key);
+                }
+
+                Integer size() {
+                    return sizes.computeIfAbsent("total", k -> 0);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun leaveMonitorsAndNullableMapsAlone() = assertUnchanged(
+        before = """
+            import java.util.Collections;
+            import java.util.HashMap;
+            import java.util.Hashtable;
+            import java.util.Map;
+
+            class Test {
+                private final Map<String, Integer> locked = new Hashtable<>();
+                private final Map<String, Integer> nullable = Collections.synchronizedMap(new HashMap<>());
+
+                int sum(String key, Integer value) {
+                    nullable.put(key, value);
+                    synchronized (locked) {
+                        int sum = 0;
+                        for (Integer i : locked.values()) {
+                            sum += i;
+                        }
+                        return sum;
+                    }
+                }
+            }
+        """
+    )
+
+    @Test
+    fun leaveEscapingFieldsAlone() = assertUnchanged(
+        before = """
+            import java.util.Hashtable;
+            import java.util.Map;
+
+            class Test {
+                private final Map<String, Integer> cache = new Hashtable<>();
+
+                Map<String, Integer> getCache() {
+                    return cache;
+                }
+            }
+        """
+    )
+}
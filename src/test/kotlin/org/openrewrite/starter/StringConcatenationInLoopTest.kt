@@ -0,0 +1,167 @@
+package org.openrewrite.starter
+
+import org.junit.jupiter.api.Test
+import org.openrewrite.Recipe
+import org.openrewrite.java.JavaParser
+import org.openrewrite.java.JavaRecipeTest
+
+class StringConcatenationInLoopTest: JavaRecipeTest {
+    override val parser: JavaParser
+        get() = JavaParser.fromJavaVersion()
+            .logCompilationWarningsAndErrors(true)
+            .build()
+
+    override val recipe: Recipe
+        get() = StringConcatenationInLoop()
+
+    @Test
+    fun appendInForEachLoop() = assertChanged(
+        before = """
+            import java.util.List;
+
+            class Test {
+                String join(List<String> parts) {
+                    String s = "";
+                    for (String part : parts) {
+                        s += part;
+                    }
+                    return s;
+                }
+            }
+        """,
+        after = """
+            import java.util.List;
+
+            class Test {
+                String join(List<String> parts) {
+                    String s = "";
+                    StringBuilder sBuilder = new StringBuilder();
+                    for (String part : parts) {
+                        sBuilder.append(part);
+                    }
+                    s = sBuilder.toString();
+                    return s;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun appendInNestedLoopsWithBreakAndReads() = assertChanged(
+        before = """
+            class Test {
+                String table(int[][] rows) {
+                    String s = "rows:";
+                    for (int[] row : rows) {
+                        int i = 0;
+                        while (i < row.length) {
+                            if (s.length() > 100) {
+                                break;
+                            }
+                            s = s + row[i] + ",";
+                            i++;
+                        }
+                    }
+                    return s;
+                }
+            }
+        """,
+        after = """
+            class Test {
+                String table(int[][] rows) {
+                    String s = "rows:";
+                    StringBuilder sBuilder = new StringBuilder(s);
+                    for (int[] row : rows) {
+                        int i = 0;
+                        while (i < row.length) {
+                            if (sBuilder.toString().length() > 100) {
+                                break;
+                            }
+                            sBuilder.append(row[i]).append(",");
+                            i++;
+                        }
+                    }
+                    s = sBuilder.toString();
+                    return s;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun keepLoopThatMaySkipTheConversion() = assertUnchanged(
+        before = """
+            import java.util.List;
+
+            class Test {
+                String join(List<List<String>> groups) {
+                    String result = "";
+                    outer:
+                    for (List<String> group : groups) {
+                        String s = "";
+                        for (String part : group) {
+                            if (part.isEmpty()) {
+                                break outer;
+                            }
+                            s += part;
+                        }
+                        result = s;
+                    }
+                    return result;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun keepStringThatMayBeNull() = assertUnchanged(
+        before = """
+            import java.util.List;
+
+            class Test {
+                String join(List<String> parts, String prefix) {
+                    String s = prefix;
+                    for (String part : parts) {
+                        s += part;
+                    }
+                    return s;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun keepOtherAssignments() = assertUnchanged(
+        before = """
+            import java.util.List;
+
+            class Test {
+                String join(List<String> parts) {
+                    String s = "";
+                    for (String part : parts) {
+                        s = part + s;
+                    }
+                    return s;
+                }
+            }
+        """
+    )
+
+    @Test
+    fun keepOperandsThatReadTheString() = assertUnchanged(
+        before = """
+            import java.util.List;
+
+            class Test {
+                String join(List<String> parts) {
+                    String s = "";
+                    for (String part : parts) {
+                        s = s + part + s.length();
+                        s = s + "y" + s;
+                    }
+                    return s;
+                }
+            }
+        """
+    )
+}
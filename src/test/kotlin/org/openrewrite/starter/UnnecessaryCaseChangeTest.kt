@@ -1,6 +1,5 @@
 package org.openrewrite.starter
 
-import org.junit.jupiter.api.Disabled
 import org.junit.jupiter.api.Test
 import org.openrewrite.Recipe
 import org.openrewrite.java.JavaParser
@@ -17,38 +16,145 @@ class UnnecessaryCaseChangeTest: JavaRecipeTest {
         get() = UnnecessaryCaseChange()
 
     @Test
-    @Disabled
     fun noUnnecessaryCaseChangetoUpperLowerThenEquals() = assertChanged(
         before = """
             class Test {
                 public static boolean f(String p) {
-                    "Abc".toUpperCase().equals("ABC");
+                    return "Abc".toUpperCase().equals("ABC");
                 }
             }
         """,
         after = """
             class Test {
                 public static boolean f(String p) {
-                    "Abc".equalsIgnoreCase("ABC");
+                    return "Abc".equalsIgnoreCase("ABC");
                 }
             }
         """
     )
 
     @Test
-    @Disabled
     fun noUnnecessaryCaseChangeInEquals() = assertChanged(
         before = """
             class Test {
                 public static boolean f(String p) {
-                    "abc".equals("ABC".toLowerCase());
+                    return "abc".equals("ABC".toLowerCase());
                 }
             }
         """,
         after = """
             class Test {
                 public static boolean f(String p) {
-                    "abc".equalsIgnoreCase("ABC");
+                    return "abc".equalsIgnoreCase("ABC");
+                }
+            }
+        """
+    )
+
+    @Test
+    fun caseChangeOfBothSidesWithLocale() = assertChanged(
+        before = """
+            import java.util.Locale;
+
+            class Test {
+                public static boolean f(String p, String q) {
+                    return p.toLowerCase(Locale.ROOT).equals(q.toLowerCase(Locale.ROOT));
+                }
+            }
+        """,
+        after = """
+            import java.util.Locale;
+
+            class Test {
+                public static boolean f(String p, String q) {
+                    return p.equalsIgnoreCase(q);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun caseChangeInEqualsIgnoreCase() = assertChanged(
+        before = """
+            class Test {
+                public static boolean f(String p, String q) {
+                    return p.equalsIgnoreCase(q.toUpperCase());
+                }
+            }
+        """,
+        after = """
+            class Test {
+                public static boolean f(String p, String q) {
+                    return p.equalsIgnoreCase(q);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun compareToOfLowerCase() = assertChanged(
+        before = """
+            class Test {
+                public static int f(String p, String q) {
+                    return p.toLowerCase().compareTo(q.toLowerCase());
+                }
+            }
+        """,
+        after = """
+            class Test {
+                public static int f(String p, String q) {
+                    return p.compareToIgnoreCase(q);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun regionMatchesOfSameCase() = assertChanged(
+        before = """
+            class Test {
+                public static boolean f(String p, String q) {
+                    return p.toUpperCase().regionMatches(1, q.toUpperCase(), 2, 3);
+                }
+            }
+        """,
+        after = """
+            class Test {
+                public static boolean f(String p, String q) {
+                    return p.regionMatches(true, 1, q, 2, 3);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun regionMatchesIgnoringCase() = assertChanged(
+        before = """
+            class Test {
+                public static boolean f(String p, String q) {
+                    return p.regionMatches(true, 1, q.toLowerCase(), 2, 3);
+                }
+            }
+        """,
+        after = """
+            class Test {
+                public static boolean f(String p, String q) {
+                    return p.regionMatches(true, 1, q, 2, 3);
+                }
+            }
+        """
+    )
+
+    @Test
+    fun keepComparisonWithDifferentCase() = assertUnchanged(
+        before = """
+            class Test {
+                public static boolean f(String p, String q) {
+                    return p.toUpperCase().equals("Abc") ||
+                            p.toUpperCase().equals(q) ||
+                            p.toUpperCase().equals(q.toLowerCase()) ||
+                            p.toUpperCase().compareTo(q.toUpperCase()) < 0 ||
+                            p.regionMatches(false, 1, q.toLowerCase(), 2, 3);
                 }
             }
         """